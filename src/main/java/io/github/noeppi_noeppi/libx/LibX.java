@@ -2,25 +2,38 @@ package io.github.noeppi_noeppi.libx;
 
 import io.github.noeppi_noeppi.libx.command.CommandUtil;
 import io.github.noeppi_noeppi.libx.command.UppercaseEnumArgument;
+import io.github.noeppi_noeppi.libx.config.ConfigManager;
 import io.github.noeppi_noeppi.libx.crafting.ingredient.EffectIngredient;
 import io.github.noeppi_noeppi.libx.crafting.ingredient.NbtIngredient;
 import io.github.noeppi_noeppi.libx.crafting.ingredient.PotionIngredient;
+import io.github.noeppi_noeppi.libx.impl.ItemInventoryWrites;
+import io.github.noeppi_noeppi.libx.impl.LibXConfig;
+import io.github.noeppi_noeppi.libx.impl.RandomTickProfiler;
+import io.github.noeppi_noeppi.libx.impl.RandomTickRegistry;
 import io.github.noeppi_noeppi.libx.impl.TileEntityUpdateQueue;
 import io.github.noeppi_noeppi.libx.impl.commands.CommandsImpl;
 import io.github.noeppi_noeppi.libx.impl.config.ConfigEvents;
+import io.github.noeppi_noeppi.libx.impl.crafting.RecipeInputIndex;
+import io.github.noeppi_noeppi.libx.impl.config.ConfigWatcher;
 import io.github.noeppi_noeppi.libx.impl.inventory.screen.GenericScreen;
+import io.github.noeppi_noeppi.libx.impl.inventory.screen.QuickMoveAllHandler;
 import io.github.noeppi_noeppi.libx.impl.loot.AllLootEntry;
 import io.github.noeppi_noeppi.libx.impl.network.NetworkImpl;
+import io.github.noeppi_noeppi.libx.impl.network.TeChunkTracker;
+import io.github.noeppi_noeppi.libx.impl.network.TeRequestQueue;
 import io.github.noeppi_noeppi.libx.inventory.container.GenericContainer;
 import io.github.noeppi_noeppi.libx.mod.ModX;
 import io.github.noeppi_noeppi.libx.render.ClientTickHandler;
+import io.github.noeppi_noeppi.libx.render.RenderHelperBlock;
 import net.minecraft.client.gui.ScreenManager;
 import net.minecraft.inventory.container.ContainerType;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.registry.Registry;
+import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.common.crafting.CraftingHelper;
 import net.minecraftforge.event.RegistryEvent;
+import net.minecraftforge.fml.DistExecutor;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.event.lifecycle.FMLClientSetupEvent;
 import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
@@ -41,13 +54,34 @@ public class LibX extends ModX {
         instance = this;
         network = new NetworkImpl(this);
 
+        ConfigManager.registerConfig(this.modid, LibXConfig.class, false);
+
         FMLJavaModLoadingContext.get().getModEventBus().addListener(this::registerMisc);
         FMLJavaModLoadingContext.get().getModEventBus().addGenericListener(ContainerType.class, this::registerContainers);
+        DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> FMLJavaModLoadingContext.get().getModEventBus().addListener(RenderHelperBlock::modelBake));
 
         MinecraftForge.EVENT_BUS.addListener(ClientTickHandler::tick);
         MinecraftForge.EVENT_BUS.addListener(TileEntityUpdateQueue::tick);
+        MinecraftForge.EVENT_BUS.addListener(TileEntityUpdateQueue::unload);
+        MinecraftForge.EVENT_BUS.addListener(TeRequestQueue::tick);
+        MinecraftForge.EVENT_BUS.addListener(TeChunkTracker::watch);
+        MinecraftForge.EVENT_BUS.addListener(TeChunkTracker::unwatch);
+        MinecraftForge.EVENT_BUS.addListener(TeChunkTracker::unload);
         MinecraftForge.EVENT_BUS.addListener(CommandsImpl::registerCommands);
         MinecraftForge.EVENT_BUS.register(new ConfigEvents());
+        MinecraftForge.EVENT_BUS.addListener(ConfigWatcher::start);
+        MinecraftForge.EVENT_BUS.addListener(ConfigWatcher::stop);
+        MinecraftForge.EVENT_BUS.addListener(RecipeInputIndex::invalidate);
+        MinecraftForge.EVENT_BUS.addListener(ItemInventoryWrites::serverTick);
+        MinecraftForge.EVENT_BUS.addListener(ItemInventoryWrites::clientTick);
+        MinecraftForge.EVENT_BUS.addListener(ItemInventoryWrites::worldSave);
+        MinecraftForge.EVENT_BUS.addListener(ItemInventoryWrites::chunkSave);
+        MinecraftForge.EVENT_BUS.addListener(ItemInventoryWrites::playerSave);
+        MinecraftForge.EVENT_BUS.addListener(ItemInventoryWrites::serverStop);
+        MinecraftForge.EVENT_BUS.addListener(RandomTickRegistry::serverStart);
+        MinecraftForge.EVENT_BUS.addListener(RandomTickRegistry::datapacksReloaded);
+        MinecraftForge.EVENT_BUS.addListener(RandomTickProfiler::serverStart);
+        MinecraftForge.EVENT_BUS.addListener(RandomTickProfiler::serverTick);
 
         CraftingHelper.register(new ResourceLocation(this.modid, "effect"), EffectIngredient.Serializer.INSTANCE);
         CraftingHelper.register(new ResourceLocation(this.modid, "potion"), PotionIngredient.Serializer.INSTANCE);
@@ -64,6 +98,8 @@ public class LibX extends ModX {
 
     @Override
     protected void clientSetup(FMLClientSetupEvent event) {
+        MinecraftForge.EVENT_BUS.addListener(QuickMoveAllHandler::mouseClicked);
+
         //noinspection CodeBlock2Expr
         event.enqueueWork(() -> {
             ScreenManager.registerFactory(GenericContainer.TYPE, GenericScreen::new);
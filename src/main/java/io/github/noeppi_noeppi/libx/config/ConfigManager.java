@@ -5,7 +5,6 @@ import com.google.gson.JsonParseException;
 import io.github.noeppi_noeppi.libx.LibX;
 import io.github.noeppi_noeppi.libx.event.ConfigLoadedEvent;
 import io.github.noeppi_noeppi.libx.impl.config.*;
-import io.github.noeppi_noeppi.libx.impl.network.ConfigShadowSerializer;
 import io.github.noeppi_noeppi.libx.util.ClassUtil;
 import net.minecraft.entity.player.ServerPlayerEntity;
 import net.minecraft.util.ResourceLocation;
@@ -15,7 +14,6 @@ import net.minecraftforge.api.distmarker.OnlyIns;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.loading.FMLEnvironment;
 import net.minecraftforge.fml.loading.FMLPaths;
-import net.minecraftforge.fml.network.PacketDistributor;
 import org.apache.commons.lang3.tuple.Pair;
 
 import javax.annotation.Nullable;
@@ -371,7 +369,8 @@ public class ConfigManager {
     }
 
     /**
-     * Forces a resync of one config to one player.
+     * Forces a resync of one config to one player. If the config was synced to the player before, only
+     * the values that changed since then are sent.
      */
     public static void forceResync(@Nullable ServerPlayerEntity player, Class<?> configClass) {
         if (!configIds.containsValue(configClass)) {
@@ -381,8 +380,7 @@ public class ConfigManager {
             ResourceLocation id = configIds.inverse().get(configClass);
             ConfigImpl config = ConfigImpl.getConfig(id);
             if (!config.clientConfig) {
-                PacketDistributor.PacketTarget target = player == null ? PacketDistributor.ALL.noArg() : PacketDistributor.PLAYER.with(() -> player);
-                LibX.getNetwork().instance.send(target, new ConfigShadowSerializer.ConfigShadowMessage(config, config.cachedOrCurrent()));
+                ConfigSync.sync(player, config);
             }
         } else {
             LibX.logger.error("ConfigManager.forceResync was called on a physical client. Ignoring.");
@@ -390,15 +388,26 @@ public class ConfigManager {
     }
     
     /**
-     * Forces a resync of all configs to one player.
+     * Forces a resync of all configs to one player. If a config was synced to the player before, only
+     * the values that changed since then are sent.
      */
     public static void forceResync(@Nullable ServerPlayerEntity player) {
+        resyncAll(player, false);
+    }
+
+    /**
+     * Forces a resync of all configs to one player. Unlike forceResync, this always sends the complete configs.
+     */
+    public static void forceFullResync(@Nullable ServerPlayerEntity player) {
+        resyncAll(player, true);
+    }
+
+    private static void resyncAll(@Nullable ServerPlayerEntity player, boolean full) {
         if (FMLEnvironment.dist == Dist.DEDICATED_SERVER) {
             for (ResourceLocation id : ConfigManager.configs()) {
                 ConfigImpl config = ConfigImpl.getConfig(id);
                 if (!config.clientConfig) {
-                    PacketDistributor.PacketTarget target = player == null ? PacketDistributor.ALL.noArg() : PacketDistributor.PLAYER.with(() -> player);
-                    LibX.getNetwork().instance.send(target, new ConfigShadowSerializer.ConfigShadowMessage(config, config.cachedOrCurrent()));
+                    ConfigSync.sync(player, config, full);
                 }
             }
         } else {
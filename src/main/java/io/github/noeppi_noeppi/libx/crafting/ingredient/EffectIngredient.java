@@ -4,6 +4,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import io.github.noeppi_noeppi.libx.impl.crafting.PotionCache;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntList;
 import net.minecraft.item.Item;
@@ -24,6 +25,7 @@ import net.minecraftforge.registries.ForgeRegistries;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -60,6 +62,12 @@ public class EffectIngredient extends Ingredient {
      */
     public final boolean higherDuration;
 
+    // The effects sorted by effect id. The order of effects with the same id is kept.
+    private final EffectInstance[] sortedEffects;
+    private final int[] sortedEffectIds;
+    private ItemStack[] matchingStacks;
+    private IntList packedStacks;
+
     public EffectIngredient(ItemStack potionStack) {
         this(potionStack.getItem(), PotionUtils.getEffectsFromStack(potionStack), false, true, true);
     }
@@ -79,14 +87,25 @@ public class EffectIngredient extends Ingredient {
         this.extraEffects = extraEffects;
         this.higherAmplifier = higherAmplifier;
         this.higherDuration = higherDuration;
+        this.sortedEffects = this.effects.toArray(new EffectInstance[0]);
+        Arrays.sort(this.sortedEffects, PotionCache.BY_EFFECT);
+        this.sortedEffectIds = new int[this.sortedEffects.length];
+        for (int i = 0; i < this.sortedEffects.length; i++) {
+            this.sortedEffectIds[i] = Effect.getId(this.sortedEffects[i].getPotion());
+        }
+        this.matchingStacks = null;
+        this.packedStacks = null;
     }
 
     @Nonnull
     @Override
     public ItemStack[] getMatchingStacks() {
-        ItemStack potion = new ItemStack(this.potionItem);
-        PotionUtils.appendEffects(potion, this.effects);
-        return new ItemStack[]{potion};
+        if (this.matchingStacks == null) {
+            ItemStack potion = new ItemStack(this.potionItem);
+            PotionUtils.appendEffects(potion, this.effects);
+            this.matchingStacks = new ItemStack[]{potion};
+        }
+        return this.matchingStacks;
     }
 
     @Override
@@ -94,25 +113,75 @@ public class EffectIngredient extends Ingredient {
         if (stack == null || stack.isEmpty() || stack.getItem() != this.potionItem) {
             return false;
         }
-        List<EffectInstance> effectsLeft = new ArrayList<>(PotionUtils.getEffectsFromStack(stack));
+        PotionCache.ParsedPotion parsed = PotionCache.get(stack);
+        EffectInstance[] present = parsed.effects;
+        int[] presentIds = parsed.effectIds;
+        int removed = 0;
+        int i = 0;
+        int groupStart = 0;
+        // Both arrays are sorted by effect id. An effect on the stack can only match
+        // required effects with the same id, so each id is handled on its own.
+        while (i < this.sortedEffects.length) {
+            int id = this.sortedEffectIds[i];
+            while (groupStart < present.length && presentIds[groupStart] < id) {
+                groupStart += 1;
+            }
+            int groupEnd = groupStart;
+            while (groupEnd < present.length && presentIds[groupEnd] == id) {
+                groupEnd += 1;
+            }
+            if (groupEnd - groupStart > 64) {
+                return this.testList(present);
+            }
+            long removedMask = 0;
+            for (; i < this.sortedEffects.length && this.sortedEffectIds[i] == id; i++) {
+                EffectInstance effect = this.sortedEffects[i];
+                boolean found = false;
+                for (int j = groupStart; j < groupEnd; j++) {
+                    long bit = 1L << (j - groupStart);
+                    if ((removedMask & bit) == 0 && this.matches(present[j], effect)) {
+                        removedMask |= bit;
+                        found = true;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            removed += Long.bitCount(removedMask);
+            groupStart = groupEnd;
+        }
+        return removed == present.length || this.extraEffects;
+    }
+
+    // Used when a stack has more than 64 instances of the same effect.
+    private boolean testList(EffectInstance[] present) {
+        List<EffectInstance> effectsLeft = new ArrayList<>(Arrays.asList(present));
         for (EffectInstance effect : this.effects) {
-            if (!effectsLeft.removeIf(left -> (left.getPotion() == effect.getPotion())
-                    && (left.getAmplifier() == effect.getAmplifier() || (this.higherAmplifier && left.getAmplifier() > effect.getAmplifier()))
-                    && (left.getPotion().isInstant() || left.getDuration() == effect.getDuration() || (this.higherDuration && left.getDuration() > effect.getDuration())))) {
+            if (!effectsLeft.removeIf(left -> this.matches(left, effect))) {
                 return false;
             }
         }
         return effectsLeft.isEmpty() || this.extraEffects;
     }
 
+    private boolean matches(EffectInstance present, EffectInstance required) {
+        return (present.getPotion() == required.getPotion())
+                && (present.getAmplifier() == required.getAmplifier() || (this.higherAmplifier && present.getAmplifier() > required.getAmplifier()))
+                && (present.getPotion().isInstant() || present.getDuration() == required.getDuration() || (this.higherDuration && present.getDuration() > required.getDuration()));
+    }
+
     @Nonnull
     @Override
     public IntList getValidItemStacksPacked() {
-        ItemStack[] stacks = this.getMatchingStacks();
-        IntArrayList ial = new IntArrayList(stacks.length);
-        for (ItemStack stack : stacks)
-            ial.add(RecipeItemHelper.pack(stack));
-        return ial;
+        if (this.packedStacks == null) {
+            ItemStack[] stacks = this.getMatchingStacks();
+            IntArrayList ial = new IntArrayList(stacks.length);
+            for (ItemStack stack : stacks)
+                ial.add(RecipeItemHelper.pack(stack));
+            this.packedStacks = ial;
+        }
+        return this.packedStacks;
     }
 
     @Override
@@ -5,12 +5,16 @@ import com.google.gson.JsonObject;
 import net.minecraft.item.ItemStack;
 import net.minecraft.item.crafting.Ingredient;
 import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.nbt.INBT;
 import net.minecraft.network.PacketBuffer;
 import net.minecraftforge.common.crafting.CraftingHelper;
 import net.minecraftforge.common.crafting.IIngredientSerializer;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.stream.Stream;
 
 /**
@@ -21,6 +25,8 @@ public class NbtIngredient extends Ingredient {
 
     private final ItemStack stack;
     private final ItemStack[] matchingStacks;
+    @Nullable
+    private final TagMatcher matcher;
 
     /**
      * If this is true, the tags must be equals. If it is false the matched item must at
@@ -37,6 +43,8 @@ public class NbtIngredient extends Ingredient {
         this.stack = stack.copy();
         this.exactMatch = exactMatch;
         this.matchingStacks = new ItemStack[] { stack.copy() };
+        CompoundNBT nbt = this.stack.getTag();
+        this.matcher = nbt == null || nbt.isEmpty() ? null : new TagMatcher(nbt);
     }
 
     @Override
@@ -47,23 +55,15 @@ public class NbtIngredient extends Ingredient {
             return false;
         }
 
-        CompoundNBT nbt = this.stack.getTag();
-        if (nbt == null) {
-            nbt = new CompoundNBT();
-        }
-
         CompoundNBT inputNbt = input.getTag();
-        if (inputNbt == null) {
-            inputNbt = new CompoundNBT();
-        }
-
-        if (this.exactMatch) {
-            return inputNbt.equals(nbt);
+        if (this.matcher == null) {
+            return !this.exactMatch || inputNbt == null || inputNbt.isEmpty();
+        } else if (inputNbt == null) {
+            return false;
+        } else if (this.exactMatch) {
+            return inputNbt.equals(this.stack.getTag());
         } else {
-            CompoundNBT merged = inputNbt.copy();
-            merged = merged.merge(nbt);
-
-            return merged.equals(inputNbt);
+            return this.matcher.test(inputNbt);
         }
     }
 
@@ -97,6 +97,46 @@ public class NbtIngredient extends Ingredient {
         return json;
     }
 
+    // Checks whether a tag contains all the values of the expected tag. This yields the same result as
+    // merging the expected tag into a copy of the input tag and checking that nothing changed but
+    // does not copy anything.
+    private static class TagMatcher {
+
+        private final String[] keys;
+        private final INBT[] values;
+        private final TagMatcher[] children;
+
+        private TagMatcher(CompoundNBT expected) {
+            List<String> keys = new ArrayList<>(expected.keySet());
+            // Check simple values first as they are cheaper to compare.
+            keys.sort(Comparator.comparing(key -> expected.get(key) instanceof CompoundNBT));
+            this.keys = keys.toArray(new String[0]);
+            this.values = new INBT[this.keys.length];
+            this.children = new TagMatcher[this.keys.length];
+            for (int i = 0; i < this.keys.length; i++) {
+                INBT value = expected.get(this.keys[i]);
+                this.values[i] = value;
+                if (value instanceof CompoundNBT) {
+                    this.children[i] = new TagMatcher((CompoundNBT) value);
+                }
+            }
+        }
+
+        private boolean test(CompoundNBT nbt) {
+            for (int i = 0; i < this.keys.length; i++) {
+                INBT value = nbt.get(this.keys[i]);
+                if (this.children[i] != null) {
+                    if (!(value instanceof CompoundNBT) || !this.children[i].test((CompoundNBT) value)) {
+                        return false;
+                    }
+                } else if (!this.values[i].equals(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     public static class Serializer implements IIngredientSerializer<NbtIngredient> {
 
         public static final Serializer INSTANCE = new Serializer();
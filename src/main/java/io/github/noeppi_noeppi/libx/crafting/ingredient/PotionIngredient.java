@@ -2,6 +2,7 @@ package io.github.noeppi_noeppi.libx.crafting.ingredient;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import io.github.noeppi_noeppi.libx.impl.crafting.PotionCache;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntList;
 import net.minecraft.item.Item;
@@ -41,18 +42,26 @@ public class PotionIngredient extends Ingredient {
      */
     public final Potion potion;
 
+    private ItemStack[] matchingStacks;
+    private IntList packedStacks;
+
     public PotionIngredient(Item potionItem, Potion potion) {
         super(Stream.empty());
         this.potionItem = potionItem;
         this.potion = potion;
+        this.matchingStacks = null;
+        this.packedStacks = null;
     }
 
     @Nonnull
     @Override
     public ItemStack[] getMatchingStacks() {
-        ItemStack stack = new ItemStack(this.potionItem);
-        PotionUtils.addPotionToItemStack(stack, this.potion);
-        return new ItemStack[]{stack};
+        if (this.matchingStacks == null) {
+            ItemStack stack = new ItemStack(this.potionItem);
+            PotionUtils.addPotionToItemStack(stack, this.potion);
+            this.matchingStacks = new ItemStack[]{stack};
+        }
+        return this.matchingStacks;
     }
 
     @Override
@@ -60,18 +69,20 @@ public class PotionIngredient extends Ingredient {
         if (stack == null || stack.isEmpty() || stack.getItem() != this.potionItem) {
             return false;
         }
-        Potion itemPotion = PotionUtils.getPotionFromItem(stack);
-        return itemPotion == this.potion;
+        return PotionCache.get(stack).potion == this.potion;
     }
 
     @Nonnull
     @Override
     public IntList getValidItemStacksPacked() {
-        ItemStack[] stacks = this.getMatchingStacks();
-        IntArrayList ial = new IntArrayList(stacks.length);
-        for (ItemStack stack : stacks)
-            ial.add(RecipeItemHelper.pack(stack));
-        return ial;
+        if (this.packedStacks == null) {
+            ItemStack[] stacks = this.getMatchingStacks();
+            IntArrayList ial = new IntArrayList(stacks.length);
+            for (ItemStack stack : stacks)
+                ial.add(RecipeItemHelper.pack(stack));
+            this.packedStacks = ial;
+        }
+        return this.packedStacks;
     }
 
     @Override
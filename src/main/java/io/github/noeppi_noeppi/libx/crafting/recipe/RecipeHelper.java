@@ -1,15 +1,15 @@
 package io.github.noeppi_noeppi.libx.crafting.recipe;
 
-import net.minecraft.inventory.IInventory;
+import io.github.noeppi_noeppi.libx.impl.crafting.RecipeInputIndex;
+import io.github.noeppi_noeppi.libx.impl.crafting.RecipeMatcher;
 import net.minecraft.inventory.container.Container;
 import net.minecraft.item.ItemStack;
 import net.minecraft.item.crafting.IRecipe;
 import net.minecraft.item.crafting.IRecipeType;
-import net.minecraft.item.crafting.Ingredient;
 import net.minecraft.item.crafting.RecipeManager;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -17,20 +17,12 @@ public class RecipeHelper {
 
     /**
      * Gets whether an ItemStack is a valid input for at least one recipe of a given recipe type.
+     * The inputs of each recipe type are indexed by item, so this is cheap to call often.
      *
      * @param rm The recipe manager to use. You can get one from a world.
      */
     public static boolean isItemValidInput(RecipeManager rm, IRecipeType<?> recipeType, ItemStack stack) {
-        //noinspection unchecked
-        Collection<? extends IRecipe<?>> recipes = rm.getRecipes((IRecipeType<IRecipe<IInventory>>) recipeType).values();
-        for (IRecipe<?> recipe : recipes) {
-            for (Ingredient ingredient : recipe.getIngredients()) {
-                if (ingredient.test(stack)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return RecipeInputIndex.get(rm, recipeType).test(stack);
     }
 
     /**
@@ -41,25 +33,17 @@ public class RecipeHelper {
      *                   more items than the recipe requires.
      */
     public static boolean matches(IRecipe<?> recipe, List<ItemStack> stacks, boolean exactMatch) {
+        return RecipeMatcher.match(recipe.getIngredients(), stacks, exactMatch) != null;
+    }
 
-        ArrayList<Integer> countsLeft = new ArrayList<>();
-        for (ItemStack stack : stacks) {
-            countsLeft.add(stack.isEmpty() ? 0 : stack.getCount());
-        }
-
-        ingredientLoop: for (Ingredient ingredient : recipe.getIngredients()) {
-            for (int i = 0; i < stacks.size(); i++) {
-                if (countsLeft.get(i) > 0) {
-                    if (ingredient.test(stacks.get(i))) {
-                        countsLeft.set(i, countsLeft.get(i) - 1);
-                        continue ingredientLoop;
-                    }
-                }
-            }
-            return false;
-        }
-
-        return !exactMatch || countsLeft.stream().noneMatch(count -> count > 0);
+    /**
+     * Does the same as {@link #matches(IRecipe, List, boolean)} but returns which stack is used for
+     * which ingredient. The resulting array contains the index of the stack in the stack list for every
+     * ingredient of the recipe. Returns null if the recipe does not match.
+     */
+    @Nullable
+    public static int[] findAssignment(IRecipe<?> recipe, List<ItemStack> stacks, boolean exactMatch) {
+        return RecipeMatcher.match(recipe.getIngredients(), stacks, exactMatch);
     }
 
     /**
@@ -12,7 +12,12 @@ import java.util.Random;
 /**
  * Called when a block or a fluid receives a random tick. Canceling the event will stop the
  * random tick. See subclasses.
+ *
+ * @deprecated This event is posted for every random tick of every block and fluid. Use
+ * {@link RandomTickListeners} to only listen for the blocks and fluids you need. The event
+ * can be disabled in the LibX config.
  */
+@Deprecated
 public abstract class RandomTickEvent extends Event {
 
     private final World world;
@@ -0,0 +1,79 @@
+package io.github.noeppi_noeppi.libx.event;
+
+import io.github.noeppi_noeppi.libx.impl.RandomTickRegistry;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.fluid.Fluid;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.tags.ITag;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.server.ServerWorld;
+
+import java.util.Random;
+
+/**
+ * Registers listeners that are called when a block or a fluid receives a random tick. Unlike
+ * {@link RandomTickEvent}, listeners are registered for specific blocks, fluids or tags, so random
+ * ticks of other blocks and fluids don't cause any overhead. Listeners should be registered during setup.
+ */
+public class RandomTickListeners {
+
+    /**
+     * Registers a listener for random ticks of a block.
+     */
+    public static void register(Block block, BlockListener listener) {
+        RandomTickRegistry.registerBlock(block, listener);
+    }
+
+    /**
+     * Registers a listener for random ticks of all blocks in a tag. The tag is resolved again after
+     * datapacks have been reloaded.
+     */
+    public static void registerBlockTag(ITag<Block> tag, BlockListener listener) {
+        RandomTickRegistry.registerBlockTag(tag, listener);
+    }
+
+    /**
+     * Registers a listener for random ticks of a fluid.
+     */
+    public static void register(Fluid fluid, FluidListener listener) {
+        RandomTickRegistry.registerFluid(fluid, listener);
+    }
+
+    /**
+     * Registers a listener for random ticks of all fluids in a tag. The tag is resolved again after
+     * datapacks have been reloaded.
+     */
+    public static void registerFluidTag(ITag<Fluid> tag, FluidListener listener) {
+        RandomTickRegistry.registerFluidTag(tag, listener);
+    }
+
+    /**
+     * A listener for block random ticks.
+     */
+    @FunctionalInterface
+    public interface BlockListener {
+
+        /**
+         * Called before a block is ticked randomly.
+         *
+         * @return true to cancel the random tick. Listeners registered after this one are not called then.
+         */
+        boolean onRandomTick(BlockState state, ServerWorld world, BlockPos pos, Random rand);
+    }
+
+    /**
+     * A listener for fluid random ticks.
+     */
+    @FunctionalInterface
+    public interface FluidListener {
+
+        /**
+         * Called before a fluid is ticked randomly.
+         *
+         * @return true to cancel the random tick. Listeners registered after this one are not called then.
+         */
+        boolean onRandomTick(FluidState state, World world, BlockPos pos, Random rand);
+    }
+}
@@ -0,0 +1,125 @@
+package io.github.noeppi_noeppi.libx.impl;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.concurrent.ThreadTaskExecutor;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.world.ChunkDataEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.fml.LogicalSidedProvider;
+import net.minecraftforge.fml.common.thread.EffectiveSide;
+import net.minecraftforge.fml.event.server.FMLServerStoppingEvent;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Collects changed item inventories so their tag is written once at the end of the tick instead of once per
+ * change. Pending writes are also flushed before the game saves, so no changes are lost.
+ */
+public class ItemInventoryWrites {
+
+    private static final Map<ItemStack, Runnable> pendingServer = new IdentityHashMap<>();
+    private static final Map<ItemStack, Runnable> pendingClient = new IdentityHashMap<>();
+
+    // Gets the pending writes for the main thread of the current logical side or null if this is not
+    // called from one of the main threads. The effective side is only known from the thread, so a
+    // change made on any other thread could otherwise end up with the writes of the wrong side.
+    @Nullable
+    private static Map<ItemStack, Runnable> pending() {
+        LogicalSide side = EffectiveSide.get();
+        ThreadTaskExecutor<?> executor = LogicalSidedProvider.WORKQUEUE.get(side);
+        if (executor == null || !executor.isOnExecutionThread()) {
+            return null;
+        }
+        return side == LogicalSide.SERVER ? pendingServer : pendingClient;
+    }
+
+    /**
+     * Schedules the write action for the given stack. If a write is already pending for the stack, nothing changes.
+     * When not called from the main thread of a logical side, the write action runs immediately.
+     */
+    public static void markDirty(ItemStack stack, Runnable write) {
+        Map<ItemStack, Runnable> pending = pending();
+        if (pending == null) {
+            write.run();
+            return;
+        }
+        synchronized (pending) {
+            pending.putIfAbsent(stack, write);
+        }
+    }
+
+    /**
+     * Runs the pending write for the given stack if there is one.
+     */
+    public static void flush(ItemStack stack) {
+        // A stack only has pending writes on one side, but this may be called from any thread.
+        flush(pendingServer, stack);
+        flush(pendingClient, stack);
+    }
+
+    private static void flush(Map<ItemStack, Runnable> pending, ItemStack stack) {
+        Runnable write;
+        synchronized (pending) {
+            write = pending.remove(stack);
+        }
+        if (write != null) {
+            write.run();
+        }
+    }
+
+    /**
+     * Runs all pending writes of the current logical side. Does nothing when not called from the main
+     * thread of a logical side.
+     */
+    public static void flushAll() {
+        Map<ItemStack, Runnable> pending = pending();
+        if (pending != null) {
+            flushAll(pending);
+        }
+    }
+
+    private static void flushAll(Map<ItemStack, Runnable> pending) {
+        List<Runnable> writes;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            writes = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        writes.forEach(Runnable::run);
+    }
+
+    public static void serverTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END) {
+            flushAll(pendingServer);
+        }
+    }
+
+    public static void clientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase == TickEvent.Phase.END) {
+            flushAll(pendingClient);
+        }
+    }
+
+    public static void worldSave(WorldEvent.Save event) {
+        if (!event.getWorld().isRemote()) {
+            flushAll(pendingServer);
+        }
+    }
+
+    public static void chunkSave(ChunkDataEvent.Save event) {
+        flushAll(pendingServer);
+    }
+
+    public static void playerSave(PlayerEvent.SaveToFile event) {
+        flushAll(pendingServer);
+    }
+
+    public static void serverStop(FMLServerStoppingEvent event) {
+        flushAll(pendingServer);
+    }
+}
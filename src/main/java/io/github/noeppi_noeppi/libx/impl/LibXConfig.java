@@ -0,0 +1,49 @@
+package io.github.noeppi_noeppi.libx.impl;
+
+import io.github.noeppi_noeppi.libx.config.Config;
+import io.github.noeppi_noeppi.libx.config.Group;
+import io.github.noeppi_noeppi.libx.config.validator.IntRange;
+
+public class LibXConfig {
+
+    @Group("Settings for reloading configs when their files change")
+    public static class ConfigWatcher {
+
+        @Config({"Whether config files should be watched for changes while a server is running.", "Changed configs are reloaded and synced to the clients without a reload command."})
+        public static boolean enabled = false;
+
+        @Config("The time in milliseconds without further changes to a config file before it is reloaded.")
+        @IntRange(min = 0)
+        public static int debounceMillis = 500;
+    }
+
+    @Group("Settings for random ticks")
+    public static class RandomTicks {
+
+        @Config({"Whether the deprecated RandomTickEvent should be posted for every random tick of every block and fluid.", "Only enable this if a mod needs the event. Posting it allocates an event for every random tick."})
+        public static boolean postEvents = false;
+
+        @Config({"Whether random ticks should be profiled from server start. Profiling can also be toggled with /libx randomticks.", "This records tick counts per block and fluid and the time spent in each listener."})
+        public static boolean profile = false;
+
+        @Config("The interval in seconds in which random tick statistics are written to the logs folder while profiling. 0 to disable.")
+        @IntRange(min = 0)
+        public static int dumpInterval = 0;
+    }
+
+    @Group("Settings for tile entities that are synced with markDispatchable")
+    public static class TileEntitySync {
+
+        @Config("The maximum amount of tile entity data in bytes sent per tick. Updates that don't fit are sent in the next tick. 0 to disable.")
+        @IntRange(min = 0)
+        public static int tickBudget = 262144;
+
+        @Config("The maximum amount of tile entity data in bytes sent to one player per tick. 0 to disable.")
+        @IntRange(min = 0)
+        public static int playerBudget = 65536;
+
+        @Config({"How often a tile entity may be updated per second at most. Changes in between are merged into one update.", "20 means every tick."})
+        @IntRange(min = 1, max = 20)
+        public static int maxUpdatesPerSecond = 20;
+    }
+}
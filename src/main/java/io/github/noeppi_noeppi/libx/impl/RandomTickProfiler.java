@@ -0,0 +1,338 @@
+package io.github.noeppi_noeppi.libx.impl;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.github.noeppi_noeppi.libx.LibX;
+import io.github.noeppi_noeppi.libx.event.RandomTickEvent;
+import io.github.noeppi_noeppi.libx.event.RandomTickListeners;
+import io.github.noeppi_noeppi.libx.impl.config.ConfigImpl;
+import net.minecraft.block.BlockState;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.util.Util;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.server.ServerWorld;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.fml.event.server.FMLServerStartingEvent;
+import net.minecraftforge.fml.loading.FMLPaths;
+import net.minecraftforge.registries.IForgeRegistryEntry;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Optional profiling of random ticks. While enabled, random ticks are counted per block and fluid and the
+ * time spent in each listener is measured. All counters are {@link LongAdder LongAdders}, so ticks on
+ * different threads don't contend on a single counter. As there's no way to time the single listeners of
+ * {@link RandomTickEvent}, posting the event is measured as a whole.
+ */
+public class RandomTickProfiler {
+
+    public static final String EVENT_LISTENER_NAME = "RandomTickEvent (all listeners)";
+
+    // Bucket i counts calls that took less than 2^(i + 7) nanoseconds. The last bucket counts all slower calls.
+    public static final int HISTOGRAM_BUCKETS = 16;
+
+    private static volatile boolean enabled = false;
+    private static volatile long startTime = System.currentTimeMillis();
+    private static long lastDump = 0;
+    // The periodic dump runs on another thread and may overlap with a dump from the command.
+    private static final Object dumpLock = new Object();
+
+    private static final Map<Object, TickStats> tickStats = new ConcurrentHashMap<>();
+    private static final Map<Object, ListenerStats> listenerStats = new ConcurrentHashMap<>();
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables profiling. Enabling profiling while it's disabled resets the statistics, so
+     * they only cover the time profiling was enabled.
+     */
+    public static void setEnabled(boolean enabled) {
+        if (enabled && !RandomTickProfiler.enabled) {
+            reset();
+            lastDump = System.currentTimeMillis();
+        }
+        RandomTickProfiler.enabled = enabled;
+    }
+
+    public static void reset() {
+        tickStats.clear();
+        listenerStats.clear();
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Gets the time in milliseconds since the statistics were last reset.
+     */
+    public static long getDuration() {
+        return System.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * Runs the random tick hooks for a block while recording statistics.
+     *
+     * @return Whether the random tick was cancelled.
+     */
+    @SuppressWarnings("deprecation")
+    public static boolean tickBlock(BlockState state, ServerWorld world, BlockPos pos, Random rand, RandomTickListeners.BlockListener[] listeners) {
+        TickStats stats = tickStats(state.getBlock());
+        stats.ticks.increment();
+        boolean cancelled = false;
+        if (LibXConfig.RandomTicks.postEvents) {
+            long start = System.nanoTime();
+            cancelled = MinecraftForge.EVENT_BUS.post(new RandomTickEvent.Block(state, world, pos, rand));
+            listenerStats(EVENT_LISTENER_NAME).record(System.nanoTime() - start, cancelled);
+        }
+        if (!cancelled && listeners != null) {
+            for (RandomTickListeners.BlockListener listener : listeners) {
+                long start = System.nanoTime();
+                cancelled = listener.onRandomTick(state, world, pos, rand);
+                listenerStats(listener).record(System.nanoTime() - start, cancelled);
+                if (cancelled) {
+                    break;
+                }
+            }
+        }
+        if (cancelled) {
+            stats.cancelled.increment();
+        }
+        return cancelled;
+    }
+
+    /**
+     * Runs the random tick hooks for a fluid while recording statistics.
+     *
+     * @return Whether the random tick was cancelled.
+     */
+    @SuppressWarnings("deprecation")
+    public static boolean tickFluid(FluidState state, World world, BlockPos pos, Random rand, RandomTickListeners.FluidListener[] listeners) {
+        TickStats stats = tickStats(state.getFluid());
+        stats.ticks.increment();
+        boolean cancelled = false;
+        if (LibXConfig.RandomTicks.postEvents) {
+            long start = System.nanoTime();
+            cancelled = MinecraftForge.EVENT_BUS.post(new RandomTickEvent.Fluid(state, world, pos, rand));
+            listenerStats(EVENT_LISTENER_NAME).record(System.nanoTime() - start, cancelled);
+        }
+        if (!cancelled && listeners != null) {
+            for (RandomTickListeners.FluidListener listener : listeners) {
+                long start = System.nanoTime();
+                cancelled = listener.onRandomTick(state, world, pos, rand);
+                listenerStats(listener).record(System.nanoTime() - start, cancelled);
+                if (cancelled) {
+                    break;
+                }
+            }
+        }
+        if (cancelled) {
+            stats.cancelled.increment();
+        }
+        return cancelled;
+    }
+
+    private static TickStats tickStats(IForgeRegistryEntry<?> key) {
+        TickStats stats = tickStats.get(key);
+        return stats != null ? stats : tickStats.computeIfAbsent(key, k -> new TickStats(String.valueOf(key.getRegistryName())));
+    }
+
+    private static ListenerStats listenerStats(Object listener) {
+        ListenerStats stats = listenerStats.get(listener);
+        return stats != null ? stats : listenerStats.computeIfAbsent(listener, k -> new ListenerStats(listenerName(listener)));
+    }
+
+    private static String listenerName(Object listener) {
+        if (listener instanceof String) {
+            return (String) listener;
+        }
+        String name = listener.getClass().getName();
+        // Lambdas are named after the class that created them.
+        int lambdaIdx = name.indexOf("$$Lambda");
+        return lambdaIdx >= 0 ? name.substring(0, lambdaIdx) : name;
+    }
+
+    /**
+     * Gets the tick statistics for all blocks and fluids sorted by tick count.
+     */
+    public static List<TickStats> getTickStats() {
+        return tickStats.values().stream()
+                .sorted(Comparator.comparingLong(TickStats::getTicks).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the statistics for all listeners sorted by the total time spent in them.
+     */
+    public static List<ListenerStats> getListenerStats() {
+        return listenerStats.values().stream()
+                .sorted(Comparator.comparingLong(ListenerStats::getNanos).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Writes the current statistics as CSV and JSON files into the {@code logs} folder. Only one dump
+     * is written at a time.
+     *
+     * @return The path of the CSV file.
+     */
+    public static Path dump() throws IOException {
+        synchronized (dumpLock) {
+            return writeDump();
+        }
+    }
+
+    private static Path writeDump() throws IOException {
+        Path dir = FMLPaths.GAMEDIR.get().resolve("logs");
+        Files.createDirectories(dir);
+        List<TickStats> ticks = getTickStats();
+        List<ListenerStats> listeners = getListenerStats();
+
+        Path csvPath = dir.resolve("libx-randomticks.csv");
+        try (Writer writer = Files.newBufferedWriter(csvPath, StandardCharsets.UTF_8)) {
+            writer.write("type,name,ticks,cancelled,nanos,histogram\n");
+            for (TickStats stats : ticks) {
+                writer.write("tick," + stats.name + "," + stats.getTicks() + "," + stats.getCancelled() + ",,\n");
+            }
+            for (ListenerStats stats : listeners) {
+                writer.write("listener,\"" + stats.name + "\"," + stats.getCalls() + "," + stats.getCancelled() + "," + stats.getNanos() + ","
+                        + Arrays.stream(stats.getHistogram()).mapToObj(Long::toString).collect(Collectors.joining(" ")) + "\n");
+            }
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("duration", getDuration());
+        JsonArray tickArray = new JsonArray();
+        for (TickStats stats : ticks) {
+            JsonObject obj = new JsonObject();
+            obj.addProperty("name", stats.name);
+            obj.addProperty("ticks", stats.getTicks());
+            obj.addProperty("cancelled", stats.getCancelled());
+            tickArray.add(obj);
+        }
+        json.add("ticks", tickArray);
+        JsonArray listenerArray = new JsonArray();
+        for (ListenerStats stats : listeners) {
+            JsonObject obj = new JsonObject();
+            obj.addProperty("name", stats.name);
+            obj.addProperty("calls", stats.getCalls());
+            obj.addProperty("cancelled", stats.getCancelled());
+            obj.addProperty("nanos", stats.getNanos());
+            JsonArray histogram = new JsonArray();
+            for (long count : stats.getHistogram()) {
+                histogram.add(count);
+            }
+            obj.add("histogram", histogram);
+            listenerArray.add(obj);
+        }
+        json.add("listeners", listenerArray);
+        try (Writer writer = Files.newBufferedWriter(dir.resolve("libx-randomticks.json"), StandardCharsets.UTF_8)) {
+            writer.write(ConfigImpl.GSON.toJson(json) + "\n");
+        }
+        return csvPath;
+    }
+
+    public static void serverStart(FMLServerStartingEvent event) {
+        // Statistics from a previous integrated server session don't belong to this one.
+        setEnabled(false);
+        reset();
+        setEnabled(LibXConfig.RandomTicks.profile);
+        lastDump = System.currentTimeMillis();
+    }
+
+    public static void serverTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END && enabled && LibXConfig.RandomTicks.dumpInterval > 0) {
+            long time = System.currentTimeMillis();
+            if (time - lastDump >= LibXConfig.RandomTicks.dumpInterval * 1000L) {
+                lastDump = time;
+                Util.getServerExecutor().execute(() -> {
+                    try {
+                        dump();
+                    } catch (IOException e) {
+                        LibX.logger.warn("Failed to write random tick statistics", e);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Random tick statistics for one block or fluid.
+     */
+    public static class TickStats {
+
+        public final String name;
+        private final LongAdder ticks = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+
+        private TickStats(String name) {
+            this.name = name;
+        }
+
+        public long getTicks() {
+            return this.ticks.sum();
+        }
+
+        public long getCancelled() {
+            return this.cancelled.sum();
+        }
+    }
+
+    /**
+     * Statistics for one random tick listener.
+     */
+    public static class ListenerStats {
+
+        public final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder[] histogram = new LongAdder[HISTOGRAM_BUCKETS];
+
+        private ListenerStats(String name) {
+            this.name = name;
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                this.histogram[i] = new LongAdder();
+            }
+        }
+
+        private void record(long nanos, boolean cancelled) {
+            this.calls.increment();
+            this.nanos.add(nanos);
+            if (cancelled) {
+                this.cancelled.increment();
+            }
+            int bucket = (63 - Long.numberOfLeadingZeros(Math.max(nanos, 1))) - 6;
+            this.histogram[Math.max(0, Math.min(HISTOGRAM_BUCKETS - 1, bucket))].increment();
+        }
+
+        public long getCalls() {
+            return this.calls.sum();
+        }
+
+        public long getCancelled() {
+            return this.cancelled.sum();
+        }
+
+        public long getNanos() {
+            return this.nanos.sum();
+        }
+
+        public long[] getHistogram() {
+            long[] values = new long[HISTOGRAM_BUCKETS];
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                values[i] = this.histogram[i].sum();
+            }
+            return values;
+        }
+    }
+}
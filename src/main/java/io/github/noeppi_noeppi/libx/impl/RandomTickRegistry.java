@@ -0,0 +1,104 @@
+package io.github.noeppi_noeppi.libx.impl;
+
+import io.github.noeppi_noeppi.libx.event.DatapacksReloadedEvent;
+import io.github.noeppi_noeppi.libx.event.RandomTickListeners;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.fluid.Fluid;
+import net.minecraft.tags.ITag;
+import net.minecraftforge.fml.event.server.FMLServerStartingEvent;
+import org.apache.commons.lang3.tuple.Pair;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the listeners registered with {@link RandomTickListeners}. Block and fluid states cache the
+ * listeners for their block or fluid together with the {@link #version() version} they were resolved
+ * at. Registering a listener or reloading tags increments the version which makes all states
+ * resolve their listeners again on their next random tick.
+ */
+public class RandomTickRegistry {
+
+    private static final Reference2ObjectMap<Block, List<RandomTickListeners.BlockListener>> blockListeners = new Reference2ObjectOpenHashMap<>();
+    private static final List<Pair<ITag<Block>, RandomTickListeners.BlockListener>> blockTagListeners = new ArrayList<>();
+    private static final Reference2ObjectMap<Fluid, List<RandomTickListeners.FluidListener>> fluidListeners = new Reference2ObjectOpenHashMap<>();
+    private static final List<Pair<ITag<Fluid>, RandomTickListeners.FluidListener>> fluidTagListeners = new ArrayList<>();
+
+    private static volatile int version = 0;
+
+    public static int version() {
+        return version;
+    }
+
+    public static synchronized void registerBlock(Block block, RandomTickListeners.BlockListener listener) {
+        blockListeners.computeIfAbsent(block, b -> new ArrayList<>()).add(listener);
+        version += 1;
+    }
+
+    public static synchronized void registerBlockTag(ITag<Block> tag, RandomTickListeners.BlockListener listener) {
+        blockTagListeners.add(Pair.of(tag, listener));
+        version += 1;
+    }
+
+    public static synchronized void registerFluid(Fluid fluid, RandomTickListeners.FluidListener listener) {
+        fluidListeners.computeIfAbsent(fluid, f -> new ArrayList<>()).add(listener);
+        version += 1;
+    }
+
+    public static synchronized void registerFluidTag(ITag<Fluid> tag, RandomTickListeners.FluidListener listener) {
+        fluidTagListeners.add(Pair.of(tag, listener));
+        version += 1;
+    }
+
+    /**
+     * Gets the listeners for a block or null if there are none.
+     */
+    @Nullable
+    public static synchronized RandomTickListeners.BlockListener[] resolveBlock(Block block) {
+        List<RandomTickListeners.BlockListener> listeners = new ArrayList<>(blockListeners.getOrDefault(block, new ArrayList<>()));
+        for (Pair<ITag<Block>, RandomTickListeners.BlockListener> entry : blockTagListeners) {
+            if (contains(entry.getLeft(), block)) {
+                listeners.add(entry.getRight());
+            }
+        }
+        return listeners.isEmpty() ? null : listeners.toArray(new RandomTickListeners.BlockListener[0]);
+    }
+
+    /**
+     * Gets the listeners for a fluid or null if there are none.
+     */
+    @Nullable
+    public static synchronized RandomTickListeners.FluidListener[] resolveFluid(Fluid fluid) {
+        List<RandomTickListeners.FluidListener> listeners = new ArrayList<>(fluidListeners.getOrDefault(fluid, new ArrayList<>()));
+        for (Pair<ITag<Fluid>, RandomTickListeners.FluidListener> entry : fluidTagListeners) {
+            if (contains(entry.getLeft(), fluid)) {
+                listeners.add(entry.getRight());
+            }
+        }
+        return listeners.isEmpty() ? null : listeners.toArray(new RandomTickListeners.FluidListener[0]);
+    }
+
+    private static <T> boolean contains(ITag<T> tag, T element) {
+        try {
+            return tag.contains(element);
+        } catch (IllegalStateException e) {
+            // Named tags that are not bound yet
+            return false;
+        }
+    }
+
+    public static synchronized void invalidate() {
+        version += 1;
+    }
+
+    public static void serverStart(FMLServerStartingEvent event) {
+        invalidate();
+    }
+
+    public static void datapacksReloaded(DatapacksReloadedEvent event) {
+        invalidate();
+    }
+}
@@ -1,36 +1,124 @@
 package io.github.noeppi_noeppi.libx.impl;
 
-import io.github.noeppi_noeppi.libx.LibX;
+import io.github.noeppi_noeppi.libx.impl.network.TeClientCache;
+import io.github.noeppi_noeppi.libx.impl.network.TeDispatchScheduler;
+import io.github.noeppi_noeppi.libx.impl.network.TeSnapshotCache;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IWorld;
 import net.minecraft.world.World;
 import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.world.WorldEvent;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TileEntityUpdateQueue {
 
-    private static final Map<World, Set<BlockPos>> updateQueue = new HashMap<>();
+    private static final Map<World, WorldQueue> updateQueue = new ConcurrentHashMap<>();
+    // Worlds that were unloaded. Updates scheduled for these afterwards are dropped, so they don't
+    // create a new queue that keeps the world alive.
+    private static final Set<World> unloaded = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    // The values of updateQueue, so the server tick can go through the queues without allocating.
+    // Only replaced while holding the lock.
+    private static final Object lock = new Object();
+    private static volatile WorldQueue[] queues = new WorldQueue[0];
+    // Pending positions per world. Only accessed from the server thread.
+    private static final Map<World, LongSet> pending = new HashMap<>();
 
+    /**
+     * Queues a tile entity update. This may be called from any thread.
+     */
     public static void scheduleUpdate(World world, BlockPos pos) {
         if (!world.isRemote) {
-            if (!updateQueue.containsKey(world)) {
-                updateQueue.put(world, new HashSet<>());
+            WorldQueue queue = updateQueue.get(world);
+            if (queue == null) {
+                queue = updateQueue.computeIfAbsent(world, TileEntityUpdateQueue::createQueue);
+            }
+            if (queue != null) {
+                queue.add(pos.toLong());
             }
-            updateQueue.get(world).add(pos);
         }
     }
 
     public static void tick(TickEvent.ServerTickEvent event) {
         if (event.phase == TickEvent.Phase.END) {
-            for (Map.Entry<World, Set<BlockPos>> entry : updateQueue.entrySet()) {
-                for (BlockPos pos : entry.getValue()) {
-                    LibX.getNetwork().updateTE(entry.getKey(), pos);
+            boolean hasWork = false;
+            for (WorldQueue queue : queues) {
+                LongSet worldPending = pending.computeIfAbsent(queue.world, w -> new LongOpenHashSet());
+                queue.drainTo(worldPending);
+                hasWork |= !worldPending.isEmpty();
+            }
+            if (hasWork || TeDispatchScheduler.hasRequests()) {
+                // Updates that don't fit into this tick's budget stay in the queue.
+                TeDispatchScheduler.dispatch(pending);
+            }
+        }
+    }
+
+    public static void unload(WorldEvent.Unload event) {
+        IWorld world = event.getWorld();
+        if (world instanceof World && !world.isRemote()) {
+            // Mark the world as unloaded before removing the queue, so a concurrent
+            // scheduleUpdate can't create a new one.
+            unloaded.add((World) world);
+            updateQueue.remove(world);
+            synchronized (lock) {
+                queues = Arrays.stream(queues).filter(queue -> queue.world != world).toArray(WorldQueue[]::new);
+            }
+            pending.remove(world);
+            TeSnapshotCache.unload((World) world);
+            TeDispatchScheduler.unload((World) world);
+        } else if (world instanceof World) {
+            TeClientCache.unload((World) world);
+        }
+    }
+
+    // Called inside computeIfAbsent, so this runs at most once per world.
+    @Nullable
+    private static WorldQueue createQueue(World world) {
+        if (unloaded.contains(world)) {
+            return null;
+        }
+        WorldQueue queue = new WorldQueue(world);
+        synchronized (lock) {
+            WorldQueue[] newQueues = Arrays.copyOf(queues, queues.length + 1);
+            newQueues[queues.length] = queue;
+            queues = newQueues;
+        }
+        return queue;
+    }
+
+    // Positions are queued into one set while the server thread drains the other one.
+    // Swapping the sets keeps the time the lock is held independent of the amount of updates.
+    private static class WorldQueue {
+
+        public final World world;
+        private LongOpenHashSet incoming = new LongOpenHashSet();
+        private LongOpenHashSet draining = new LongOpenHashSet();
+
+        private WorldQueue(World world) {
+            this.world = world;
+        }
+
+        public synchronized void add(long pos) {
+            this.incoming.add(pos);
+        }
+
+        public void drainTo(LongSet target) {
+            LongOpenHashSet positions;
+            synchronized (this) {
+                if (this.incoming.isEmpty()) {
+                    return;
                 }
-                entry.getValue().clear();
+                positions = this.incoming;
+                this.incoming = this.draining;
+                this.draining = positions;
             }
+            target.addAll(positions);
+            positions.clear();
         }
     }
 }
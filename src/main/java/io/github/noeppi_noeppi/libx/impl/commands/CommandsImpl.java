@@ -23,6 +23,15 @@ public class CommandsImpl {
                 literal("reload").executes(new ReloadCommand())
         ).then(
                 literal("modlist").executes(new ModListCommand(false)).then(literal("detailed").executes(new ModListCommand(true)))
+        ).then(
+                literal("tesync").executes(new TeSyncCommand())
+        ).then(
+                literal("randomticks")
+                        .executes(new RandomTicksCommand(RandomTicksCommand.Action.SHOW))
+                        .then(literal("start").executes(new RandomTicksCommand(RandomTicksCommand.Action.START)))
+                        .then(literal("stop").executes(new RandomTicksCommand(RandomTicksCommand.Action.STOP)))
+                        .then(literal("reset").executes(new RandomTicksCommand(RandomTicksCommand.Action.RESET)))
+                        .then(literal("dump").executes(new RandomTicksCommand(RandomTicksCommand.Action.DUMP)))
         ));
     }
 }
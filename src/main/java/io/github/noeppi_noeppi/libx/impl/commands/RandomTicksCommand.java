@@ -0,0 +1,89 @@
+package io.github.noeppi_noeppi.libx.impl.commands;
+
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.context.CommandContext;
+import io.github.noeppi_noeppi.libx.LibX;
+import io.github.noeppi_noeppi.libx.impl.RandomTickProfiler;
+import net.minecraft.command.CommandSource;
+import net.minecraft.util.text.TranslationTextComponent;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+public class RandomTicksCommand implements Command<CommandSource> {
+
+    private static final int MAX_LINES = 10;
+
+    public final Action action;
+
+    public RandomTicksCommand(Action action) {
+        this.action = action;
+    }
+
+    @Override
+    public int run(CommandContext<CommandSource> context) {
+        switch (this.action) {
+            case START:
+                RandomTickProfiler.setEnabled(true);
+                context.getSource().sendFeedback(new TranslationTextComponent("libx.command.randomticks.start"), true);
+                break;
+            case STOP:
+                RandomTickProfiler.setEnabled(false);
+                context.getSource().sendFeedback(new TranslationTextComponent("libx.command.randomticks.stop"), true);
+                break;
+            case RESET:
+                RandomTickProfiler.reset();
+                context.getSource().sendFeedback(new TranslationTextComponent("libx.command.randomticks.reset"), true);
+                break;
+            case DUMP:
+                try {
+                    Path path = RandomTickProfiler.dump();
+                    context.getSource().sendFeedback(new TranslationTextComponent("libx.command.randomticks.dump", path.toString()), false);
+                } catch (IOException e) {
+                    LibX.logger.warn("Failed to write random tick statistics", e);
+                    context.getSource().sendErrorMessage(new TranslationTextComponent("libx.command.randomticks.dump_failed"));
+                    return 0;
+                }
+                break;
+            case SHOW:
+                this.show(context.getSource());
+                break;
+        }
+        return 0;
+    }
+
+    private void show(CommandSource source) {
+        List<RandomTickProfiler.TickStats> ticks = RandomTickProfiler.getTickStats();
+        List<RandomTickProfiler.ListenerStats> listeners = RandomTickProfiler.getListenerStats();
+        if (ticks.isEmpty()) {
+            source.sendFeedback(new TranslationTextComponent(RandomTickProfiler.isEnabled() ? "libx.command.randomticks.empty" : "libx.command.randomticks.disabled"), false);
+            return;
+        }
+        source.sendFeedback(new TranslationTextComponent("libx.command.randomticks.ticks", RandomTickProfiler.getDuration() / 1000), false);
+        for (RandomTickProfiler.TickStats stats : ticks.subList(0, Math.min(MAX_LINES, ticks.size()))) {
+            source.sendFeedback(new TranslationTextComponent("libx.command.randomticks.tick",
+                    stats.name, stats.getTicks(), percent(stats.getCancelled(), stats.getTicks())), false);
+        }
+        if (!listeners.isEmpty()) {
+            source.sendFeedback(new TranslationTextComponent("libx.command.randomticks.listeners"), false);
+            for (RandomTickProfiler.ListenerStats stats : listeners.subList(0, Math.min(MAX_LINES, listeners.size()))) {
+                source.sendFeedback(new TranslationTextComponent("libx.command.randomticks.listener",
+                        stats.name, stats.getCalls(), stats.getNanos() / Math.max(1, stats.getCalls()),
+                        stats.getNanos() / 1000000, percent(stats.getCancelled(), stats.getCalls())), false);
+            }
+        }
+    }
+
+    private static String percent(long part, long total) {
+        return String.format("%.1f", total == 0 ? 0 : (100d * part) / total);
+    }
+
+    public enum Action {
+        SHOW,
+        START,
+        STOP,
+        RESET,
+        DUMP
+    }
+}
@@ -0,0 +1,21 @@
+package io.github.noeppi_noeppi.libx.impl.commands;
+
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.context.CommandContext;
+import io.github.noeppi_noeppi.libx.impl.network.TeSyncStats;
+import net.minecraft.command.CommandSource;
+import net.minecraft.util.text.TranslationTextComponent;
+
+public class TeSyncCommand implements Command<CommandSource> {
+
+    @Override
+    public int run(CommandContext<CommandSource> context) {
+        context.getSource().sendFeedback(new TranslationTextComponent("libx.command.tesync.updates",
+                TeSyncStats.getFullUpdates(), TeSyncStats.getDeltaUpdates(), TeSyncStats.getSkippedUpdates()), false);
+        context.getSource().sendFeedback(new TranslationTextComponent("libx.command.tesync.bytes",
+                TeSyncStats.getBytesSent(), TeSyncStats.getBytesSaved(), TeSyncStats.getLastTickBytes()), false);
+        context.getSource().sendFeedback(new TranslationTextComponent("libx.command.tesync.queue",
+                TeSyncStats.getQueueDepth(), TeSyncStats.getLastTickDeferred(), TeSyncStats.getDeferredBudget(), TeSyncStats.getDeferredRate()), false);
+        return 0;
+    }
+}
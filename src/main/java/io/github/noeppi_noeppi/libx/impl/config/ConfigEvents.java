@@ -17,7 +17,15 @@ public class ConfigEvents {
     @SubscribeEvent(priority = EventPriority.HIGHEST)
     public void playerJoin(PlayerEvent.PlayerLoggedInEvent event) {
         if (!event.getPlayer().world.isRemote && event.getPlayer() instanceof ServerPlayerEntity && FMLEnvironment.dist == Dist.DEDICATED_SERVER) {
-            ConfigManager.forceResync((ServerPlayerEntity) event.getPlayer());
+            ConfigManager.forceFullResync((ServerPlayerEntity) event.getPlayer());
+        }
+    }
+    
+    @OnlyIn(Dist.DEDICATED_SERVER)
+    @SubscribeEvent
+    public void playerLeave(PlayerEvent.PlayerLoggedOutEvent event) {
+        if (event.getPlayer() instanceof ServerPlayerEntity) {
+            ConfigSync.playerLeave((ServerPlayerEntity) event.getPlayer());
         }
     }
     
@@ -0,0 +1,83 @@
+package io.github.noeppi_noeppi.libx.impl.config;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reads the values of a config file in a single pass. The config keys are arranged in a tree
+ * matching the group structure so each name in the file is resolved with one lookup. Values are
+ * stored by key ordinal as defined by {@link ConfigImpl#orderedKeys}.
+ */
+public class ConfigFileReader {
+
+    private final Node root;
+    private final int size;
+
+    public ConfigFileReader(List<ConfigKey> orderedKeys) {
+        this.root = new Node();
+        this.size = orderedKeys.size();
+        for (int i = 0; i < orderedKeys.size(); i++) {
+            List<String> path = orderedKeys.get(i).path;
+            if (path.isEmpty()) {
+                throw new IllegalStateException("Internal error in LibX config: Empty path for a config key: " + orderedKeys.get(i).field);
+            }
+            Node node = this.root;
+            for (int j = 0; j < path.size() - 1; j++) {
+                node = node.groups.computeIfAbsent(path.get(j), k -> new Node());
+            }
+            node.keys.put(path.get(path.size() - 1), i);
+        }
+    }
+
+    /**
+     * Reads the json values for all keys. The resulting array is indexed by key ordinal and contains
+     * null for keys not present in the file. If a group in the file is not an object, needsCorrection is set.
+     */
+    public JsonElement[] read(Reader in, AtomicBoolean needsCorrection) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        reader.setLenient(true);
+        JsonElement[] values = new JsonElement[this.size];
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new JsonParseException("Config file must contain a json object, got " + reader.peek());
+        }
+        this.readObject(reader, this.root, values, needsCorrection);
+        return values;
+    }
+
+    private void readObject(JsonReader reader, Node node, JsonElement[] values, AtomicBoolean needsCorrection) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            Integer ordinal = node.keys.get(name);
+            Node group = node.groups.get(name);
+            if (ordinal != null) {
+                JsonElement value = ConfigImpl.INTERNAL.fromJson(reader, JsonElement.class);
+                values[ordinal] = value == null ? JsonNull.INSTANCE : value;
+            } else if (group != null && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                this.readObject(reader, group, values, needsCorrection);
+            } else {
+                if (group != null) {
+                    needsCorrection.set(true);
+                }
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static class Node {
+
+        private final Map<String, Integer> keys = new HashMap<>();
+        private final Map<String, Node> groups = new HashMap<>();
+    }
+}
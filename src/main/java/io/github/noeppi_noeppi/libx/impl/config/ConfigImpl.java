@@ -1,11 +1,11 @@
 package io.github.noeppi_noeppi.libx.impl.config;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import io.github.noeppi_noeppi.libx.LibX;
 import io.github.noeppi_noeppi.libx.config.ValueMapper;
 import io.github.noeppi_noeppi.libx.event.ConfigLoadedEvent;
@@ -17,9 +17,12 @@ import net.minecraftforge.fml.loading.FMLEnvironment;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.Reader;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
@@ -64,9 +67,20 @@ public class ConfigImpl {
     public final Set<ConfigGroup> groups;
     public final boolean clientConfig;
     
+    // Keys sorted by path. The index in this list is the ordinal used in the compact sync format.
+    public final List<ConfigKey> orderedKeys;
+    // Hash of the key layout. The compact sync format is only used if this matches on both sides.
+    public final int schemaHash;
+    private final ConfigFileReader fileReader;
+    
     private boolean shadowed;
+    private ConfigState shadowState;
     private ConfigState savedState;
     private ConfigState defaultState;
+    
+    // Content of the file as it was last read or written by LibX. The config watcher ignores
+    // changes that leave the file with this content, so it does not react to LibX's own writes.
+    private volatile byte[] knownContent;
 
     public ConfigImpl(ResourceLocation id, Class<?> baseClass, Path path, boolean clientConfig) {
         if (configs.containsKey(id)) {
@@ -86,25 +100,24 @@ public class ConfigImpl {
         } catch (ReflectiveOperationException e) {
             throw new IllegalStateException("Failed to build config for class " + baseClass, e);
         }
+        this.orderedKeys = this.keys.values().stream().sorted(ConfigKey.BY_PATH).collect(ImmutableList.toImmutableList());
+        this.schemaHash = computeSchemaHash(this.orderedKeys);
+        this.fileReader = new ConfigFileReader(this.orderedKeys);
         this.shadowed = false;
         this.savedState = null;
         this.defaultState = null;
     }
 
     public ConfigState stateFromValues() {
-        try {
-            ImmutableMap.Builder<ConfigKey, Object> values = ImmutableMap.builder();
-            for (ConfigKey key : this.keys.values()) {
-                Object value = key.field.get(null);
-                if (value == null) {
-                    throw new IllegalStateException("Null value in applied config. This is usually an error in the mod.");
-                }
-                values.put(key, value);
+        ImmutableMap.Builder<ConfigKey, Object> values = ImmutableMap.builder();
+        for (ConfigKey key : this.keys.values()) {
+            Object value = key.get();
+            if (value == null) {
+                throw new IllegalStateException("Null value in applied config. This is usually an error in the mod.");
             }
-            return new ConfigState(this, values.build(), ImmutableSet.copyOf(this.groups));
-        } catch (ReflectiveOperationException e) {
-            throw new IllegalStateException("Failed to read config state from current values.");
+            values.put(key, value);
         }
+        return new ConfigState(this, values.build(), ImmutableSet.copyOf(this.groups));
     }
 
     public ConfigState readState(PacketBuffer buffer) {
@@ -144,6 +157,26 @@ public class ConfigImpl {
         }
     }
 
+    public ConfigState readCompactState(PacketBuffer buffer, boolean partial) {
+        Set<ConfigKey> keysLeft = new HashSet<>(this.keys.values());
+        ImmutableMap.Builder<ConfigKey, Object> values = ImmutableMap.builder();
+        int size = buffer.readVarInt();
+        for (int i = 0; i < size; i++) {
+            int ordinal = buffer.readVarInt();
+            if (ordinal < 0 || ordinal >= this.orderedKeys.size()) {
+                throw new IllegalStateException("Config between client and server mismatch. Server sent invalid key ordinal: " + ordinal);
+            }
+            ConfigKey key = this.orderedKeys.get(ordinal);
+            Object value = key.mapper.read(buffer, key.elementType);
+            values.put(key, value);
+            keysLeft.remove(key);
+        }
+        if (!partial && !keysLeft.isEmpty()) {
+            LibX.logger.warn("Config " + this.id + ": There are additional fields on the client, not sent by the server. Using client values.");
+        }
+        return new ConfigState(this, values.build(), ImmutableSet.copyOf(this.groups));
+    }
+
     public ConfigState readFromFileOrCreateByDefault() throws IOException {
         if (this.defaultState == null) {
             throw new IllegalStateException("LibX config internal error: Default state not set.");
@@ -162,18 +195,31 @@ public class ConfigImpl {
     }
 
     public ConfigState readFromFile() throws IOException {
+        return this.readFromFile(true);
+    }
+
+    /**
+     * Reads the config from the file. If {@code correct} is false, invalid values are replaced by
+     * their defaults but the file is not rewritten.
+     */
+    public ConfigState readFromFile(boolean correct) throws IOException {
         if (this.defaultState == null) {
             throw new IllegalStateException("Can't read config from file: Default state not set.");
         }
         if (!Files.isRegularFile(this.path) || !Files.isReadable(this.path)) {
             throw new IllegalStateException("Config '" + this.id + "' does not exist or is not readable.");
         }
-        Reader reader = Files.newBufferedReader(this.path);
-        JsonObject config = GSON.fromJson(reader, JsonObject.class);
-        ImmutableMap.Builder<ConfigKey, Object> values = ImmutableMap.builder();
         AtomicBoolean needsCorrection = new AtomicBoolean(false);
-        for (ConfigKey key : this.keys.values()) {
-            JsonElement elem = getInObjectKeyPath(config, key, needsCorrection);
+        JsonElement[] elements;
+        byte[] content = Files.readAllBytes(this.path);
+        this.knownContent = content;
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8)) {
+            elements = this.fileReader.read(reader, needsCorrection);
+        }
+        ImmutableMap.Builder<ConfigKey, Object> values = ImmutableMap.builder();
+        for (int i = 0; i < this.orderedKeys.size(); i++) {
+            ConfigKey key = this.orderedKeys.get(i);
+            JsonElement elem = elements[i];
             if (elem != null && key.mapper.element().isAssignableFrom(elem.getClass())) {
                 try {
                     //noinspection unchecked
@@ -189,15 +235,28 @@ public class ConfigImpl {
                 needsCorrection.set(true);
             }
         }
-        reader.close();
         ConfigState state = new ConfigState(this, values.build(), ImmutableSet.copyOf(this.groups));
-        if (needsCorrection.get()) {
+        if (needsCorrection.get() && correct) {
             LibX.logger.info("Correcting config '" + this.id + "'");
             state.writeToFile();
+        } else if (needsCorrection.get()) {
+            LibX.logger.warn("Config '" + this.id + "' contains invalid values. Using defaults for them.");
         }
         return state;
     }
 
+    void fileWritten(byte[] content) {
+        this.knownContent = content;
+    }
+
+    /**
+     * Gets whether the given file content is the content that was last read or written by LibX.
+     */
+    public boolean isKnownContent(byte[] content) {
+        byte[] known = this.knownContent;
+        return known != null && Arrays.equals(known, content);
+    }
+
     private static void addAllFieldsToBuilder(Class<?> baseClass, Class<?> currentClass, ImmutableMap.Builder<Field, ConfigKey> keys, ImmutableSet.Builder<ConfigGroup> groups) throws ReflectiveOperationException {
         Set<String> names = new HashSet<>();
         for (Field field : currentClass.getDeclaredFields()) {
@@ -226,25 +285,17 @@ public class ConfigImpl {
         }
     }
 
-    private static JsonElement getInObjectKeyPath(JsonObject root, ConfigKey key, @Nullable AtomicBoolean needsCorrection) {
-        if (key.path.isEmpty()) {
-            throw new IllegalStateException("Internal error in LibX config: Empty path for a config key: " + key.field.getName() + " @ " + key.field.getDeclaringClass());
-        }
-        JsonObject current = root;
-        for (int i = 0; i < key.path.size() - 1; i++) {
-            JsonElement elem = current.get(key.path.get(i));
-            if (elem == null || !elem.isJsonObject()) {
-                if (needsCorrection != null) {
-                    needsCorrection.set(true);
-                }
-                return null;
-            } else {
-                 current = elem.getAsJsonObject();
-            }
+    private static int computeSchemaHash(List<ConfigKey> orderedKeys) {
+        int hash = 1;
+        for (ConfigKey key : orderedKeys) {
+            hash = 31 * hash + String.join(".", key.path).hashCode();
+            hash = 31 * hash + key.field.getType().getName().hashCode();
+            hash = 31 * hash + key.mapperId.toString().hashCode();
+            hash = 31 * hash + key.elementType.getName().hashCode();
         }
-        return current.get(key.path.get(key.path.size() - 1));
+        return hash;
     }
-    
+
     public void shadowBy(ConfigState state) {
         if (FMLEnvironment.dist == Dist.DEDICATED_SERVER) {
             LibX.logger.error("Config shadow was called on a dedicated server. This should not happen!");
@@ -254,10 +305,23 @@ public class ConfigImpl {
             this.savedState = this.stateFromValues();
         }
         this.shadowed = true;
+        this.shadowState = state;
         state.apply();
         MinecraftForge.EVENT_BUS.post(new ConfigLoadedEvent(this.id, this.baseClass, ConfigLoadedEvent.LoadReason.SHADOW, this.clientConfig, this.path));
     }
     
+    /**
+     * Applies the values of a partial state onto the current shadow. Returns false if the config
+     * is not shadowed. In that case a full state is required.
+     */
+    public boolean shadowPartial(ConfigState partial) {
+        if (!this.shadowed || this.shadowState == null) {
+            return false;
+        }
+        this.shadowBy(this.shadowState.with(partial));
+        return true;
+    }
+    
     public void restore() {
         if (this.shadowed && this.savedState != null) {
             this.savedState.apply();
@@ -265,6 +329,7 @@ public class ConfigImpl {
             LibX.logger.warn("Could not restore config: No saved state");
         }
         this.shadowed = false;
+        this.shadowState = null;
         MinecraftForge.EVENT_BUS.post(new ConfigLoadedEvent(this.id, this.baseClass, ConfigLoadedEvent.LoadReason.RESTORE, this.clientConfig, this.path));
     }
     
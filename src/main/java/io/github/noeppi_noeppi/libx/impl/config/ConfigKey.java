@@ -57,6 +57,28 @@ public class ConfigKey {
         return Objects.hash(this.field, this.mapperId, this.elementType);
     }
     
+    /**
+     * Gets the current value of the field. The field is made accessible once when the key is created.
+     */
+    public Object get() {
+        try {
+            return this.field.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to read value from config field " + this.field, e);
+        }
+    }
+
+    /**
+     * Sets the value of the field.
+     */
+    public void set(Object value) {
+        try {
+            this.field.set(null, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to insert value into config field " + this.field, e);
+        }
+    }
+    
     public Object validate(Object value, String action, @Nullable AtomicBoolean needsCorrection) {
         if (!ClassUtil.boxed(this.field.getType()).isAssignableFrom(value.getClass())) {
             throw new IllegalStateException("LibX config internal error: Can't validate value of type " + value.getClass()  +" (expected " + this.field.getType() + ")");
@@ -10,12 +10,10 @@ import net.minecraft.network.PacketBuffer;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
-import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 
 public class ConfigState {
@@ -37,16 +35,35 @@ public class ConfigState {
         return this.values.get(key);
     }
     
-    public void apply() {
-        try {
-            for (Map.Entry<ConfigKey, Object> entry : this.values.entrySet()) {
-                ConfigKey key = entry.getKey();
-                Object value = entry.getValue();
-                key.field.setAccessible(true);
-                key.field.set(null, value);
+    /**
+     * Gets a partial state that only contains the keys of the given state with a value different from this state.
+     */
+    public ConfigState changesTo(ConfigState other) {
+        ImmutableMap.Builder<ConfigKey, Object> changed = ImmutableMap.builder();
+        for (Map.Entry<ConfigKey, Object> entry : other.values.entrySet()) {
+            if (!Objects.equals(this.values.get(entry.getKey()), entry.getValue())) {
+                changed.put(entry.getKey(), entry.getValue());
             }
-        } catch (ReflectiveOperationException e) {
-            throw new IllegalStateException("Failed to insert value into field.", e);
+        }
+        return new ConfigState(this.config, changed.build(), ImmutableSet.copyOf(this.groups));
+    }
+
+    /**
+     * Gets a new state with the values of this state replaced by the values of the given partial state.
+     */
+    public ConfigState with(ConfigState partial) {
+        Map<ConfigKey, Object> merged = new HashMap<>(this.values);
+        merged.putAll(partial.values);
+        return new ConfigState(this.config, ImmutableMap.copyOf(merged), ImmutableSet.copyOf(this.groups));
+    }
+
+    public boolean isEmpty() {
+        return this.values.isEmpty();
+    }
+
+    public void apply() {
+        for (Map.Entry<ConfigKey, Object> entry : this.values.entrySet()) {
+            entry.getKey().set(entry.getValue());
         }
     }
     
@@ -64,13 +81,32 @@ public class ConfigState {
         }
     }
 
+    // Only writes the key ordinals and the values. The receiver must have the same key layout.
+    public void writeCompact(PacketBuffer buffer) {
+        int size = 0;
+        for (ConfigKey key : this.config.orderedKeys) {
+            if (this.values.containsKey(key)) {
+                size += 1;
+            }
+        }
+        buffer.writeVarInt(size);
+        for (int i = 0; i < this.config.orderedKeys.size(); i++) {
+            ConfigKey key = this.config.orderedKeys.get(i);
+            if (this.values.containsKey(key)) {
+                buffer.writeVarInt(i);
+                //noinspection unchecked
+                ((ValueMapper<Object, ?>) key.mapper).write(this.values.get(key), buffer, key.elementType);
+            }
+        }
+    }
+
     public void writeToFile() throws IOException {
         if (!Files.isDirectory(this.config.path.getParent())) {
             Files.createDirectories(this.config.path.getParent());
         }
-        Writer writer = Files.newBufferedWriter(this.config.path, StandardOpenOption.CREATE);
-        writer.write("{\n" + this.applyIndent(this.writeObject(this.values.keySet(), this.groups, 0), "  ") + "\n}\n");
-        writer.close();
+        byte[] content = ("{\n" + this.applyIndent(this.writeObject(this.values.keySet(), this.groups, 0), "  ") + "\n}\n").getBytes(StandardCharsets.UTF_8);
+        Files.write(this.config.path, content, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.config.fileWritten(content);
     }
     
     public String writeObject(@Nonnull Set<ConfigKey> keys, Set<ConfigGroup> groups, int pathStrip) {
@@ -0,0 +1,71 @@
+package io.github.noeppi_noeppi.libx.impl.config;
+
+import io.github.noeppi_noeppi.libx.LibX;
+import io.github.noeppi_noeppi.libx.impl.network.ConfigShadowSerializer;
+import net.minecraft.entity.player.ServerPlayerEntity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.fml.network.PacketDistributor;
+import net.minecraftforge.fml.server.ServerLifecycleHooks;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Sends config states to clients. Configs are sent in the compact format unless the client
+ * reported a different key layout for a config. In that case the full format is used for that
+ * config until the player logs out. If a config was already synced to a player, only the keys
+ * that changed since then are sent.
+ */
+public class ConfigSync {
+
+    private static final Map<UUID, Set<ResourceLocation>> fullFormat = Collections.synchronizedMap(new HashMap<>());
+    private static final Map<UUID, Map<ResourceLocation, ConfigState>> lastSynced = Collections.synchronizedMap(new HashMap<>());
+
+    public static void sync(@Nullable ServerPlayerEntity player, ConfigImpl config) {
+        sync(player, config, false);
+    }
+
+    /**
+     * Syncs a config to a player or all players if player is null. When {@code full} is set, the
+     * whole state is sent even if the player already received parts of it.
+     */
+    public static void sync(@Nullable ServerPlayerEntity player, ConfigImpl config, boolean full) {
+        if (player == null) {
+            MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+            if (server != null) {
+                for (ServerPlayerEntity p : server.getPlayerList().getPlayers()) {
+                    sync(p, config, full);
+                }
+            }
+        } else {
+            UUID uid = player.getGameProfile().getId();
+            Set<ResourceLocation> fullFormatConfigs = fullFormat.get(uid);
+            boolean compact = fullFormatConfigs == null || !fullFormatConfigs.contains(config.id);
+            ConfigState state = config.cachedOrCurrent();
+            ConfigState last = lastSynced.computeIfAbsent(uid, k -> new HashMap<>()).put(config.id, state);
+            ConfigShadowSerializer.ConfigShadowMessage msg;
+            if (!full && compact && last != null) {
+                ConfigState changes = last.changesTo(state);
+                if (changes.isEmpty()) {
+                    return;
+                }
+                msg = new ConfigShadowSerializer.ConfigShadowMessage(config, changes, true);
+                msg.partial = true;
+            } else {
+                msg = new ConfigShadowSerializer.ConfigShadowMessage(config, state, compact);
+            }
+            LibX.getNetwork().instance.send(PacketDistributor.PLAYER.with(() -> player), msg);
+        }
+    }
+
+    public static void useFullFormat(ServerPlayerEntity player, ConfigImpl config) {
+        LibX.logger.info("Player " + player.getGameProfile().getName() + " has a different key layout for config '" + config.id + "'. Using full sync format.");
+        fullFormat.computeIfAbsent(player.getGameProfile().getId(), k -> new HashSet<>()).add(config.id);
+    }
+
+    public static void playerLeave(ServerPlayerEntity player) {
+        fullFormat.remove(player.getGameProfile().getId());
+        lastSynced.remove(player.getGameProfile().getId());
+    }
+}
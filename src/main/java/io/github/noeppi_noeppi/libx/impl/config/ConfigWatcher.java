@@ -0,0 +1,142 @@
+package io.github.noeppi_noeppi.libx.impl.config;
+
+import com.google.gson.JsonParseException;
+import io.github.noeppi_noeppi.libx.LibX;
+import io.github.noeppi_noeppi.libx.config.ConfigManager;
+import io.github.noeppi_noeppi.libx.event.ConfigLoadedEvent;
+import io.github.noeppi_noeppi.libx.impl.LibXConfig;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.fml.event.server.FMLServerStartedEvent;
+import net.minecraftforge.fml.event.server.FMLServerStoppingEvent;
+import net.minecraftforge.fml.loading.FMLEnvironment;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the files of all common configs while a server is running. When a file changes and no further
+ * change happens for the configured debounce time, the config is read and validated on the watcher thread.
+ * The new state is then applied on the server thread, followed by a {@link ConfigLoadedEvent} and a resync.
+ */
+public class ConfigWatcher {
+
+    // Written on the server thread, read on the watcher thread
+    private static volatile ConfigWatcher instance = null;
+
+    private final MinecraftServer server;
+    private final WatchService watchService;
+    private final Map<Path, ConfigImpl> configs;
+    private final Thread thread;
+
+    private ConfigWatcher(MinecraftServer server) throws IOException {
+        this.server = server;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.configs = new HashMap<>();
+        Set<Path> dirs = new HashSet<>();
+        for (ResourceLocation id : ConfigManager.configs()) {
+            ConfigImpl config = ConfigImpl.getConfig(id);
+            if (!config.clientConfig) {
+                Path path = config.path.toAbsolutePath().normalize();
+                this.configs.put(path, config);
+                dirs.add(path.getParent());
+            }
+        }
+        for (Path dir : dirs) {
+            if (Files.isDirectory(dir)) {
+                dir.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+        this.thread = new Thread(this::run, "LibX Config Watcher");
+        this.thread.setDaemon(true);
+    }
+
+    public static synchronized void start(FMLServerStartedEvent event) {
+        stop(null);
+        if (LibXConfig.ConfigWatcher.enabled) {
+            try {
+                instance = new ConfigWatcher(event.getServer());
+                instance.thread.start();
+            } catch (IOException e) {
+                LibX.logger.error("Failed to start config watcher", e);
+            }
+        }
+    }
+
+    public static synchronized void stop(FMLServerStoppingEvent event) {
+        if (instance != null) {
+            try {
+                instance.watchService.close();
+            } catch (IOException e) {
+                LibX.logger.warn("Failed to close config watcher", e);
+            }
+            instance = null;
+        }
+    }
+
+    private void run() {
+        Set<ConfigImpl> pending = new LinkedHashSet<>();
+        try {
+            //noinspection InfiniteLoopStatement
+            while (true) {
+                // While changes are pending, wait at most the debounce time for further changes.
+                WatchKey key = pending.isEmpty() ? this.watchService.take() : this.watchService.poll(LibXConfig.ConfigWatcher.debounceMillis, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    for (ConfigImpl config : pending) {
+                        this.reload(config);
+                    }
+                    pending.clear();
+                } else {
+                    Path dir = (Path) key.watchable();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.context() instanceof Path) {
+                            ConfigImpl config = this.configs.get(dir.resolve((Path) event.context()));
+                            if (config != null) {
+                                pending.add(config);
+                            }
+                        }
+                    }
+                    key.reset();
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Watcher was stopped.
+        }
+    }
+
+    private void reload(ConfigImpl config) {
+        if (!Files.isRegularFile(config.path)) {
+            return;
+        }
+        ConfigState state;
+        try {
+            if (config.isKnownContent(Files.readAllBytes(config.path))) {
+                // LibX wrote or loaded this content itself, for example a correction or the reload command.
+                return;
+            }
+            // Don't write corrections here. It would trigger the watcher again.
+            state = config.readFromFile(false);
+        } catch (IOException | IllegalStateException | JsonParseException e) {
+            LibX.logger.error("Failed to reload changed config '" + config.id + "'. Keeping current values.", e);
+            return;
+        }
+        this.server.execute(() -> {
+            if (instance != this) {
+                return;
+            }
+            LibX.logger.info("Reloading changed config '" + config.id + "'");
+            config.saveState(state);
+            if (!config.isShadowed()) {
+                state.apply();
+            }
+            MinecraftForge.EVENT_BUS.post(new ConfigLoadedEvent(config.id, config.baseClass, ConfigLoadedEvent.LoadReason.RELOAD, config.clientConfig, config.path));
+            if (FMLEnvironment.dist == Dist.DEDICATED_SERVER) {
+                ConfigSync.sync(null, config);
+            }
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.noeppi_noeppi.libx.impl.crafting;
+
+import com.google.common.collect.MapMaker;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.nbt.INBT;
+import net.minecraft.potion.Effect;
+import net.minecraft.potion.EffectInstance;
+import net.minecraft.potion.Potion;
+import net.minecraft.potion.PotionUtils;
+import net.minecraft.potion.Potions;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the potion and effects of item tags, so ingredients don't need to parse them on every test.
+ * Tags are compared by identity. An entry is parsed again if the potion or custom effects entry of the
+ * tag was replaced.
+ */
+public class PotionCache {
+
+    public static final Comparator<EffectInstance> BY_EFFECT = Comparator.comparingInt(effect -> Effect.getId(effect.getPotion()));
+
+    private static final ParsedPotion EMPTY = new ParsedPotion(null, null, Potions.EMPTY, new EffectInstance[0]);
+    private static final ConcurrentMap<CompoundNBT, ParsedPotion> cache = new MapMaker().weakKeys().makeMap();
+
+    public static ParsedPotion get(ItemStack stack) {
+        CompoundNBT nbt = stack.getTag();
+        if (nbt == null) {
+            return EMPTY;
+        }
+        INBT potionTag = nbt.get("Potion");
+        INBT customTag = nbt.get("CustomPotionEffects");
+        ParsedPotion parsed = cache.get(nbt);
+        if (parsed == null || parsed.potionTag != potionTag || parsed.customTag != customTag) {
+            List<EffectInstance> effects = PotionUtils.getEffectsFromTag(nbt);
+            EffectInstance[] sorted = effects.toArray(new EffectInstance[0]);
+            Arrays.sort(sorted, BY_EFFECT);
+            parsed = new ParsedPotion(potionTag, customTag, PotionUtils.getPotionTypeFromNBT(nbt), sorted);
+            cache.put(nbt, parsed);
+        }
+        return parsed;
+    }
+
+    public static class ParsedPotion {
+
+        @Nullable
+        private final INBT potionTag;
+        @Nullable
+        private final INBT customTag;
+
+        /**
+         * The potion type of the stack.
+         */
+        public final Potion potion;
+
+        /**
+         * All effects of the stack sorted by {@link #BY_EFFECT}. This must not be modified.
+         */
+        public final EffectInstance[] effects;
+
+        /**
+         * The ids of the effects in {@link #effects}. This must not be modified.
+         */
+        public final int[] effectIds;
+
+        private ParsedPotion(@Nullable INBT potionTag, @Nullable INBT customTag, Potion potion, EffectInstance[] effects) {
+            this.potionTag = potionTag;
+            this.customTag = customTag;
+            this.potion = potion;
+            this.effects = effects;
+            this.effectIds = new int[effects.length];
+            for (int i = 0; i < effects.length; i++) {
+                this.effectIds[i] = Effect.getId(effects[i].getPotion());
+            }
+        }
+    }
+}
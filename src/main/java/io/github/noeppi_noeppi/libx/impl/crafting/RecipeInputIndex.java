@@ -0,0 +1,101 @@
+package io.github.noeppi_noeppi.libx.impl.crafting;
+
+import com.google.common.collect.ImmutableList;
+import io.github.noeppi_noeppi.libx.event.DatapacksReloadedEvent;
+import net.minecraft.inventory.IInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.IRecipe;
+import net.minecraft.item.crafting.IRecipeType;
+import net.minecraft.item.crafting.Ingredient;
+import net.minecraft.item.crafting.RecipeManager;
+import net.minecraft.util.ResourceLocation;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Index of all items that are a valid input for at least one recipe of a recipe type. Simple ingredients
+ * only depend on the item, so they are resolved into a set of items. All other ingredients are kept in a
+ * list and tested one by one.
+ */
+public class RecipeInputIndex {
+
+    private static final Map<RecipeManager, Map<IRecipeType<?>, RecipeInputIndex>> indices = new WeakHashMap<>();
+    private static final AtomicInteger generation = new AtomicInteger(0);
+
+    // The recipe map this index was built from. The recipe manager replaces it when recipes are reloaded.
+    private final Map<ResourceLocation, ? extends IRecipe<?>> source;
+    private final Set<Item> items;
+    private final List<Ingredient> complexIngredients;
+    private final boolean emptyMatches;
+
+    private RecipeInputIndex(Map<ResourceLocation, ? extends IRecipe<?>> source) {
+        this.source = source;
+        Set<Item> items = new HashSet<>();
+        Set<Ingredient> complexIngredients = new LinkedHashSet<>();
+        boolean emptyMatches = false;
+        for (IRecipe<?> recipe : source.values()) {
+            for (Ingredient ingredient : recipe.getIngredients()) {
+                if (ingredient.isSimple() && ingredient.getClass() == Ingredient.class) {
+                    ItemStack[] stacks = ingredient.getMatchingStacks();
+                    if (stacks.length == 0) {
+                        // Ingredient.EMPTY matches empty stacks.
+                        emptyMatches = true;
+                    }
+                    for (ItemStack stack : stacks) {
+                        if (!stack.isEmpty()) {
+                            items.add(stack.getItem());
+                        }
+                    }
+                } else {
+                    complexIngredients.add(ingredient);
+                }
+            }
+        }
+        this.items = items;
+        this.complexIngredients = ImmutableList.copyOf(complexIngredients);
+        this.emptyMatches = emptyMatches;
+    }
+
+    public boolean test(ItemStack stack) {
+        if (stack.isEmpty() ? this.emptyMatches : this.items.contains(stack.getItem())) {
+            return true;
+        }
+        for (Ingredient ingredient : this.complexIngredients) {
+            if (ingredient.test(stack)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static RecipeInputIndex get(RecipeManager rm, IRecipeType<?> recipeType) {
+        //noinspection unchecked
+        Map<ResourceLocation, ? extends IRecipe<?>> recipes = rm.getRecipes((IRecipeType<IRecipe<IInventory>>) recipeType);
+        synchronized (indices) {
+            Map<IRecipeType<?>, RecipeInputIndex> map = indices.computeIfAbsent(rm, k -> new HashMap<>());
+            RecipeInputIndex index = map.get(recipeType);
+            if (index == null || index.source != recipes) {
+                index = new RecipeInputIndex(recipes);
+                map.put(recipeType, index);
+            }
+            return index;
+        }
+    }
+
+    public static void invalidate(DatapacksReloadedEvent event) {
+        synchronized (indices) {
+            indices.clear();
+        }
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Gets a number that changes every time the datapacks are reloaded. Caches of recipe results can
+     * use this to detect that they are outdated.
+     */
+    public static int getGeneration() {
+        return generation.get();
+    }
+}
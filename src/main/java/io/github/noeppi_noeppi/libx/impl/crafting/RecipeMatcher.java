@@ -0,0 +1,148 @@
+package io.github.noeppi_noeppi.libx.impl.crafting;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.Ingredient;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Assigns ingredients to stacks, so that every ingredient takes one item from a stack that it matches
+ * and no stack gives away more items than it has. This is solved as a maximum bipartite matching with
+ * stack counts as capacities using augmenting paths, so overlapping ingredients can't cause false
+ * negatives. Most inputs are matched by assigning each ingredient to the first matching stack with
+ * items left, so the matrix of all ingredient tests is only built if that leaves ingredients without
+ * a stack.
+ */
+public class RecipeMatcher {
+
+    private final List<Ingredient> ingredients;
+    private final List<ItemStack> stacks;
+    private final int words;
+    // Bitset matrix: Bit j in row i is set if ingredient i matches stack j.
+    private final long[] matrix;
+    private final int[] capacity;
+    private final int[] used;
+    private final int[] assignment;
+    private final int[] visited;
+    private int visitMark;
+
+    private RecipeMatcher(List<Ingredient> ingredients, List<ItemStack> stacks) {
+        this.ingredients = ingredients;
+        this.stacks = stacks;
+        this.words = (stacks.size() + 63) >> 6;
+        this.matrix = new long[ingredients.size() * this.words];
+        this.capacity = new int[stacks.size()];
+        this.used = new int[stacks.size()];
+        this.assignment = new int[ingredients.size()];
+        this.visited = new int[stacks.size()];
+        this.visitMark = 0;
+        Arrays.fill(this.assignment, -1);
+        for (int j = 0; j < stacks.size(); j++) {
+            ItemStack stack = stacks.get(j);
+            this.capacity[j] = stack.isEmpty() ? 0 : stack.getCount();
+        }
+    }
+
+    /**
+     * Finds an assignment of ingredients to stacks. The result holds the index of the stack for every
+     * ingredient or is null if the ingredients can't be satisfied.
+     *
+     * @param exactMatch Whether all items in the stacks must be used.
+     */
+    @Nullable
+    public static int[] match(List<Ingredient> ingredients, List<ItemStack> stacks, boolean exactMatch) {
+        long totalItems = 0;
+        for (ItemStack stack : stacks) {
+            if (!stack.isEmpty()) {
+                totalItems += stack.getCount();
+            }
+        }
+        if (totalItems < ingredients.size() || (exactMatch && totalItems != ingredients.size())) {
+            return null;
+        }
+        RecipeMatcher matcher = new RecipeMatcher(ingredients, stacks);
+        if (matcher.assignFirstFit()) {
+            return matcher.assignment;
+        }
+        matcher.buildMatrix();
+        for (int i = 0; i < ingredients.size(); i++) {
+            if (matcher.assignment[i] < 0) {
+                matcher.visitMark += 1;
+                if (!matcher.augment(i)) {
+                    return null;
+                }
+            }
+        }
+        return matcher.assignment;
+    }
+
+    // Assigns every ingredient to the first matching stack with items left. Returns whether all ingredients
+    // got a stack. Stacks that are used up are skipped without testing, which makes this much cheaper than
+    // building the matrix. The partial assignment is a valid start for the augmenting paths.
+    private boolean assignFirstFit() {
+        boolean complete = true;
+        for (int i = 0; i < this.ingredients.size(); i++) {
+            Ingredient ingredient = this.ingredients.get(i);
+            for (int j = 0; j < this.stacks.size(); j++) {
+                if (this.used[j] < this.capacity[j] && ingredient.test(this.stacks.get(j))) {
+                    this.assign(i, j);
+                    break;
+                }
+            }
+            if (this.assignment[i] < 0) {
+                complete = false;
+            }
+        }
+        return complete;
+    }
+
+    private void buildMatrix() {
+        for (int i = 0; i < this.ingredients.size(); i++) {
+            Ingredient ingredient = this.ingredients.get(i);
+            int row = i * this.words;
+            for (int j = 0; j < this.stacks.size(); j++) {
+                if (this.capacity[j] > 0 && ingredient.test(this.stacks.get(j))) {
+                    this.matrix[row + (j >> 6)] |= 1L << j;
+                }
+            }
+        }
+    }
+
+    // Tries to find a stack for an ingredient, moving other ingredients to different stacks if required.
+    private boolean augment(int ingredient) {
+        int row = ingredient * this.words;
+        for (int w = 0; w < this.words; w++) {
+            long bits = this.matrix[row + w];
+            while (bits != 0) {
+                int stack = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (this.visited[stack] == this.visitMark) {
+                    continue;
+                }
+                this.visited[stack] = this.visitMark;
+                if (this.used[stack] < this.capacity[stack]) {
+                    this.assign(ingredient, stack);
+                    return true;
+                }
+                for (int other = 0; other < this.assignment.length; other++) {
+                    if (this.assignment[other] == stack && this.augment(other)) {
+                        // other was moved away and freed one item in stack
+                        this.assign(ingredient, stack);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void assign(int ingredient, int stack) {
+        if (this.assignment[ingredient] >= 0) {
+            this.used[this.assignment[ingredient]] -= 1;
+        }
+        this.assignment[ingredient] = stack;
+        this.used[stack] += 1;
+    }
+}
@@ -0,0 +1,55 @@
+package io.github.noeppi_noeppi.libx.impl.inventory.screen;
+
+import io.github.noeppi_noeppi.libx.LibX;
+import io.github.noeppi_noeppi.libx.inventory.container.CommonContainer;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.screen.Screen;
+import net.minecraft.client.gui.screen.inventory.ContainerScreen;
+import net.minecraft.inventory.container.Container;
+import net.minecraft.inventory.container.Slot;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.Util;
+import net.minecraftforge.client.event.GuiScreenEvent;
+
+import javax.annotation.Nullable;
+
+// Sends a shift double click in the screen of a CommonContainer as a single LibX packet, so the
+// container can move all matching stacks at once instead of getting one click per slot.
+public class QuickMoveAllHandler {
+
+    // Same as in ContainerScreen
+    private static final long DOUBLE_CLICK_TIME = 250;
+
+    @Nullable
+    private static Slot lastSlot = null;
+    private static long lastClickTime = 0;
+    private static ItemStack lastStack = ItemStack.EMPTY;
+
+    public static void mouseClicked(GuiScreenEvent.MouseClickedEvent.Pre event) {
+        Minecraft mc = Minecraft.getInstance();
+        if (!(event.getGui() instanceof ContainerScreen) || event.getButton() != 0 || !Screen.hasShiftDown() || mc.player == null || mc.playerController == null) {
+            lastSlot = null;
+            return;
+        }
+        Container container = ((ContainerScreen<?>) event.getGui()).getContainer();
+        Slot slot = ((ContainerScreen<?>) event.getGui()).getSlotUnderMouse();
+        long time = Util.milliTime();
+        if (container instanceof CommonContainer && slot != null && slot == lastSlot && time - lastClickTime < DOUBLE_CLICK_TIME && !lastStack.isEmpty()) {
+            // The first click already moved the clicked stack, so any remaining matching stack is used.
+            for (Slot source : container.inventorySlots) {
+                if (source.isSameInventory(slot) && source.canTakeStack(mc.player) && ItemStack.areItemsEqual(lastStack, source.getStack())
+                        && ItemStack.areItemStackTagsEqual(lastStack, source.getStack())) {
+                    LibX.getNetwork().requestQuickMoveAll(container.windowId, source.slotNumber);
+                    event.setCanceled(true);
+                    break;
+                }
+            }
+            lastSlot = null;
+            lastStack = ItemStack.EMPTY;
+        } else {
+            lastSlot = slot;
+            lastClickTime = time;
+            lastStack = slot == null ? ItemStack.EMPTY : slot.getStack().copy();
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package io.github.noeppi_noeppi.libx.impl.mixin;
 
 import io.github.noeppi_noeppi.libx.event.RandomTickEvent;
+import io.github.noeppi_noeppi.libx.event.RandomTickListeners;
+import io.github.noeppi_noeppi.libx.impl.LibXConfig;
+import io.github.noeppi_noeppi.libx.impl.RandomTickProfiler;
+import io.github.noeppi_noeppi.libx.impl.RandomTickRegistry;
 import net.minecraft.block.AbstractBlock;
 import net.minecraft.block.BlockState;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.server.ServerWorld;
 import net.minecraftforge.common.MinecraftForge;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
@@ -16,6 +21,12 @@ import java.util.Random;
 @Mixin(AbstractBlock.AbstractBlockState.class)
 public class MixinAbstractBlockState {
 
+    @Unique
+    private RandomTickListeners.BlockListener[] randomTickListeners = null;
+
+    @Unique
+    private int randomTickVersion = -1;
+
     @Inject(
             method = "Lnet/minecraft/block/AbstractBlock$AbstractBlockState;randomTick(Lnet/minecraft/world/server/ServerWorld;Lnet/minecraft/util/math/BlockPos;Ljava/util/Random;)V",
             at = @At("HEAD"),
@@ -24,8 +35,30 @@ public class MixinAbstractBlockState {
     public void randomTick(ServerWorld world, BlockPos pos, Random rand, CallbackInfo ci) {
         //noinspection ConstantConditions
         if ((AbstractBlock.AbstractBlockState) (Object) this instanceof BlockState) {
-            if (MinecraftForge.EVENT_BUS.post(new RandomTickEvent.Block((BlockState) (Object) this, world, pos, rand))) {
+            BlockState state = (BlockState) (Object) this;
+            int version = RandomTickRegistry.version();
+            if (this.randomTickVersion != version) {
+                this.randomTickListeners = RandomTickRegistry.resolveBlock(state.getBlock());
+                this.randomTickVersion = version;
+            }
+            if (RandomTickProfiler.isEnabled()) {
+                if (RandomTickProfiler.tickBlock(state, world, pos, rand, this.randomTickListeners)) {
+                    ci.cancel();
+                }
+                return;
+            }
+            if (LibXConfig.RandomTicks.postEvents && MinecraftForge.EVENT_BUS.post(new RandomTickEvent.Block(state, world, pos, rand))) {
                 ci.cancel();
+                return;
+            }
+            RandomTickListeners.BlockListener[] listeners = this.randomTickListeners;
+            if (listeners != null) {
+                for (RandomTickListeners.BlockListener listener : listeners) {
+                    if (listener.onRandomTick(state, world, pos, rand)) {
+                        ci.cancel();
+                        return;
+                    }
+                }
             }
         }
     }
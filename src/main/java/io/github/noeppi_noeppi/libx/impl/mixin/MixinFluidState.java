@@ -1,11 +1,16 @@
 package io.github.noeppi_noeppi.libx.impl.mixin;
 
 import io.github.noeppi_noeppi.libx.event.RandomTickEvent;
+import io.github.noeppi_noeppi.libx.event.RandomTickListeners;
+import io.github.noeppi_noeppi.libx.impl.LibXConfig;
+import io.github.noeppi_noeppi.libx.impl.RandomTickProfiler;
+import io.github.noeppi_noeppi.libx.impl.RandomTickRegistry;
 import net.minecraft.fluid.FluidState;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraftforge.common.MinecraftForge;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
@@ -15,14 +20,42 @@ import java.util.Random;
 @Mixin(FluidState.class)
 public class MixinFluidState {
 
+    @Unique
+    private RandomTickListeners.FluidListener[] randomTickListeners = null;
+
+    @Unique
+    private int randomTickVersion = -1;
+
     @Inject(
             method = "Lnet/minecraft/fluid/FluidState;randomTick(Lnet/minecraft/world/World;Lnet/minecraft/util/math/BlockPos;Ljava/util/Random;)V",
             at = @At("HEAD"),
             cancellable = true
     )
     public void randomTick(World world, BlockPos pos, Random rand, CallbackInfo ci) {
-        if (MinecraftForge.EVENT_BUS.post(new RandomTickEvent.Fluid((FluidState) (Object) this, world, pos, rand))) {
+        FluidState state = (FluidState) (Object) this;
+        int version = RandomTickRegistry.version();
+        if (this.randomTickVersion != version) {
+            this.randomTickListeners = RandomTickRegistry.resolveFluid(state.getFluid());
+            this.randomTickVersion = version;
+        }
+        if (RandomTickProfiler.isEnabled()) {
+            if (RandomTickProfiler.tickFluid(state, world, pos, rand, this.randomTickListeners)) {
+                ci.cancel();
+            }
+            return;
+        }
+        if (LibXConfig.RandomTicks.postEvents && MinecraftForge.EVENT_BUS.post(new RandomTickEvent.Fluid(state, world, pos, rand))) {
             ci.cancel();
+            return;
+        }
+        RandomTickListeners.FluidListener[] listeners = this.randomTickListeners;
+        if (listeners != null) {
+            for (RandomTickListeners.FluidListener listener : listeners) {
+                if (listener.onRandomTick(state, world, pos, rand)) {
+                    ci.cancel();
+                    return;
+                }
+            }
         }
     }
 }
@@ -0,0 +1,25 @@
+package io.github.noeppi_noeppi.libx.impl.network;
+
+import io.github.noeppi_noeppi.libx.impl.config.ConfigImpl;
+import io.github.noeppi_noeppi.libx.impl.config.ConfigSync;
+import net.minecraft.entity.player.ServerPlayerEntity;
+import net.minecraftforge.fml.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+public class ConfigRequestHandler {
+
+    public static void handle(ConfigRequestSerializer.ConfigRequestMessage msg, Supplier<NetworkEvent.Context> ctx) {
+        ctx.get().enqueueWork(() -> {
+            ServerPlayerEntity sender = ctx.get().getSender();
+            ConfigImpl config = ConfigImpl.getConfigNullable(msg.configId);
+            if (sender != null && config != null && !config.clientConfig) {
+                if (msg.schemaMismatch) {
+                    ConfigSync.useFullFormat(sender, config);
+                }
+                ConfigSync.sync(sender, config, true);
+            }
+        });
+        ctx.get().setPacketHandled(true);
+    }
+}
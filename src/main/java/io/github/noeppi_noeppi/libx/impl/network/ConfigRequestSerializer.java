@@ -0,0 +1,41 @@
+package io.github.noeppi_noeppi.libx.impl.network;
+
+import io.github.noeppi_noeppi.libx.network.PacketSerializer;
+import net.minecraft.network.PacketBuffer;
+import net.minecraft.util.ResourceLocation;
+
+public class ConfigRequestSerializer implements PacketSerializer<ConfigRequestSerializer.ConfigRequestMessage> {
+
+    @Override
+    public Class<ConfigRequestMessage> messageClass() {
+        return ConfigRequestMessage.class;
+    }
+
+    @Override
+    public void encode(ConfigRequestMessage msg, PacketBuffer buffer) {
+        buffer.writeResourceLocation(msg.configId);
+        buffer.writeBoolean(msg.schemaMismatch);
+    }
+
+    @Override
+    public ConfigRequestMessage decode(PacketBuffer buffer) {
+        return new ConfigRequestMessage(buffer.readResourceLocation(), buffer.readBoolean());
+    }
+
+    // Sent by the client if it needs a full state of a config. This happens when it can't read
+    // the compact format of a config or when it receives a partial state without having a full one.
+    public static class ConfigRequestMessage {
+
+        public ConfigRequestMessage() {
+
+        }
+
+        public ConfigRequestMessage(ResourceLocation configId, boolean schemaMismatch) {
+            this.configId = configId;
+            this.schemaMismatch = schemaMismatch;
+        }
+
+        public ResourceLocation configId;
+        public boolean schemaMismatch;
+    }
+}
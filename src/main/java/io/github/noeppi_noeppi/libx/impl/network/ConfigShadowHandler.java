@@ -1,5 +1,6 @@
 package io.github.noeppi_noeppi.libx.impl.network;
 
+import io.github.noeppi_noeppi.libx.LibX;
 import net.minecraftforge.fml.network.NetworkEvent;
 
 import java.util.function.Supplier;
@@ -7,7 +8,19 @@ import java.util.function.Supplier;
 public class ConfigShadowHandler {
     
     public static void handle(ConfigShadowSerializer.ConfigShadowMessage msg, Supplier<NetworkEvent.Context> ctx) {
-        ctx.get().enqueueWork(() -> msg.config.shadowBy(msg.state));
+        ctx.get().enqueueWork(() -> {
+            if (msg.schemaMismatch) {
+                LibX.logger.info("Config '" + msg.config.id + "' has a different key layout than on the server. Requesting full sync.");
+                LibX.getNetwork().instance.sendToServer(new ConfigRequestSerializer.ConfigRequestMessage(msg.config.id, true));
+            } else if (msg.config != null && msg.state != null) {
+                if (!msg.partial) {
+                    msg.config.shadowBy(msg.state);
+                } else if (!msg.config.shadowPartial(msg.state)) {
+                    LibX.logger.warn("Received partial state for config '" + msg.config.id + "' that is not shadowed. Requesting full sync.");
+                    LibX.getNetwork().instance.sendToServer(new ConfigRequestSerializer.ConfigRequestMessage(msg.config.id, false));
+                }
+            }
+        });
         ctx.get().setPacketHandled(true);
     }
 }
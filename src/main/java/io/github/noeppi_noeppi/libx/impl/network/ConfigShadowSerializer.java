@@ -18,8 +18,17 @@ public class ConfigShadowSerializer implements PacketSerializer<ConfigShadowSeri
     @Override
     public void encode(ConfigShadowMessage msg, PacketBuffer buffer) {
         buffer.writeResourceLocation(msg.config.id);
+        buffer.writeBoolean(msg.compact);
+        if (msg.compact) {
+            buffer.writeInt(msg.config.schemaHash);
+            buffer.writeBoolean(msg.partial);
+        }
         PacketBuffer b = new PacketBuffer(Unpooled.buffer());
-        msg.state.write(b);
+        if (msg.compact) {
+            msg.state.writeCompact(b);
+        } else {
+            msg.state.write(b);
+        }
         buffer.writeVarInt(b.writerIndex());
         buffer.writeBytes(b);
     }
@@ -27,20 +36,31 @@ public class ConfigShadowSerializer implements PacketSerializer<ConfigShadowSeri
     @Override
     public ConfigShadowMessage decode(PacketBuffer buffer) {
         ResourceLocation configId = buffer.readResourceLocation();
+        boolean compact = buffer.readBoolean();
+        int schemaHash = compact ? buffer.readInt() : 0;
+        boolean partial = compact && buffer.readBoolean();
         ConfigImpl config = ConfigImpl.getConfigNullable(configId);
         int size = buffer.readVarInt();
         if (config == null) {
             LibX.logger.warn("Received shadow message for unknown config: '" + configId + "'. Ignoring");
             // Skip the bytes we don't know about.
             buffer.skipBytes(size);
-            return new ConfigShadowMessage(null, null);
+            return new ConfigShadowMessage(null, null, false);
         } else if (config.clientConfig) {
             LibX.logger.warn("Received shadow message for not-synced config: '" + configId + "'. Ignoring");
             // Skip the bytes we don't know about.
             buffer.skipBytes(size);
-            return new ConfigShadowMessage(null, null);
+            return new ConfigShadowMessage(null, null, false);
+        } else if (compact && schemaHash != config.schemaHash) {
+            // Key layout differs from the server. We can't read this, so we request the full format.
+            buffer.skipBytes(size);
+            ConfigShadowMessage msg = new ConfigShadowMessage(config, null, true);
+            msg.schemaMismatch = true;
+            return msg;
         } else {
-            return new ConfigShadowMessage(config, config.readState(buffer));
+            ConfigShadowMessage msg = new ConfigShadowMessage(config, compact ? config.readCompactState(buffer, partial) : config.readState(buffer), compact);
+            msg.partial = partial;
+            return msg;
         }
     }
 
@@ -50,12 +70,17 @@ public class ConfigShadowSerializer implements PacketSerializer<ConfigShadowSeri
             
         }
 
-        public ConfigShadowMessage(ConfigImpl config, ConfigState state) {
+        public ConfigShadowMessage(ConfigImpl config, ConfigState state, boolean compact) {
             this.config = config;
             this.state = state;
+            this.compact = compact;
         }
 
         public ConfigImpl config;
         public ConfigState state;
+        public boolean compact;
+        // Partial messages only contain changed keys and are always compact.
+        public boolean partial;
+        public boolean schemaMismatch;
     }
 }
@@ -0,0 +1,124 @@
+package io.github.noeppi_noeppi.libx.impl.network;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.nbt.INBT;
+import net.minecraft.network.PacketBuffer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The difference between two compound tags. Keys that were added or changed are sent with their
+ * new value, removed keys are sent by name. Compound tags present in both tags are diffed recursively,
+ * every other tag type is replaced as a whole.
+ */
+public class NbtDelta {
+
+    private final CompoundNBT set;
+    private final List<String> removed;
+    private final Map<String, NbtDelta> nested;
+
+    private NbtDelta(CompoundNBT set, List<String> removed, Map<String, NbtDelta> nested) {
+        this.set = set;
+        this.removed = removed;
+        this.nested = nested;
+    }
+
+    /**
+     * Computes the delta that turns {@code from} into {@code to}.
+     */
+    public static NbtDelta compute(CompoundNBT from, CompoundNBT to) {
+        CompoundNBT set = new CompoundNBT();
+        List<String> removed = new ArrayList<>();
+        Map<String, NbtDelta> nested = new HashMap<>();
+        for (String key : to.keySet()) {
+            INBT newValue = to.get(key);
+            INBT oldValue = from.get(key);
+            if (newValue == null || newValue.equals(oldValue)) {
+                continue;
+            }
+            if (oldValue instanceof CompoundNBT && newValue instanceof CompoundNBT) {
+                nested.put(key, compute((CompoundNBT) oldValue, (CompoundNBT) newValue));
+            } else {
+                set.put(key, newValue);
+            }
+        }
+        for (String key : from.keySet()) {
+            if (!to.contains(key)) {
+                removed.add(key);
+            }
+        }
+        return new NbtDelta(set, ImmutableList.copyOf(removed), ImmutableMap.copyOf(nested));
+    }
+
+    /**
+     * Gets whether this delta does not change anything.
+     */
+    public boolean isEmpty() {
+        return this.set.isEmpty() && this.removed.isEmpty() && this.nested.isEmpty();
+    }
+
+    /**
+     * Applies this delta to a copy of the given tag and returns it or returns null if the delta
+     * does not fit the tag.
+     */
+    public CompoundNBT apply(CompoundNBT base) {
+        CompoundNBT result = base.copy();
+        return this.applyTo(result) ? result : null;
+    }
+
+    private boolean applyTo(CompoundNBT nbt) {
+        for (String key : this.removed) {
+            nbt.remove(key);
+        }
+        for (String key : this.set.keySet()) {
+            INBT value = this.set.get(key);
+            if (value != null) {
+                nbt.put(key, value.copy());
+            }
+        }
+        for (Map.Entry<String, NbtDelta> entry : this.nested.entrySet()) {
+            INBT child = nbt.get(entry.getKey());
+            if (!(child instanceof CompoundNBT) || !entry.getValue().applyTo((CompoundNBT) child)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void write(PacketBuffer buffer) {
+        buffer.writeCompoundTag(this.set);
+        buffer.writeVarInt(this.removed.size());
+        for (String key : this.removed) {
+            buffer.writeString(key, 0x7fff);
+        }
+        buffer.writeVarInt(this.nested.size());
+        for (Map.Entry<String, NbtDelta> entry : this.nested.entrySet()) {
+            buffer.writeString(entry.getKey(), 0x7fff);
+            entry.getValue().write(buffer);
+        }
+    }
+
+    public static NbtDelta read(PacketBuffer buffer) {
+        CompoundNBT set = buffer.readCompoundTag();
+        if (set == null) {
+            set = new CompoundNBT();
+        }
+        int removedSize = buffer.readVarInt();
+        ImmutableList.Builder<String> removed = ImmutableList.builder();
+        for (int i = 0; i < removedSize; i++) {
+            removed.add(buffer.readString(0x7fff));
+        }
+        int nestedSize = buffer.readVarInt();
+        ImmutableMap.Builder<String, NbtDelta> nested = ImmutableMap.builder();
+        for (int i = 0; i < nestedSize; i++) {
+            String key = buffer.readString(0x7fff);
+            nested.put(key, read(buffer));
+        }
+        return new NbtDelta(set, removed.build(), nested.build());
+    }
+}
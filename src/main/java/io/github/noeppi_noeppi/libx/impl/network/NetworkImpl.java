@@ -2,72 +2,255 @@ package io.github.noeppi_noeppi.libx.impl.network;
 
 import io.github.noeppi_noeppi.libx.mod.ModX;
 import io.github.noeppi_noeppi.libx.network.NetworkX;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.entity.player.ServerPlayerEntity;
 import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
+import net.minecraft.world.server.ServerWorld;
 import net.minecraftforge.fml.network.NetworkDirection;
 import net.minecraftforge.fml.network.PacketDistributor;
 
+import javax.annotation.Nullable;
+import java.util.*;
+
 /**
  * The network implementation of LibX. Allows for some networking functions that are required very often.
  */
 public final class NetworkImpl extends NetworkX {
 
+    // Vanilla limits custom payload packets sent to the client to 1MiB.
+    private static final int MAX_BATCH_SIZE = 0x80000;
+
     public NetworkImpl(ModX mod) {
         super(mod);
     }
 
     @Override
     protected String getProtocolVersion() {
-        return "5";
+        return "12";
     }
 
     @Override
     protected void registerPackets() {
         this.register(new TeUpdateSerializer(), () -> TeUpdateHandler::handle, NetworkDirection.PLAY_TO_CLIENT);
+        this.register(new TeDeltaSerializer(), () -> TeDeltaHandler::handle, NetworkDirection.PLAY_TO_CLIENT);
+        this.register(new TeBatchSerializer(), () -> TeBatchHandler::handle, NetworkDirection.PLAY_TO_CLIENT);
         this.register(new ConfigShadowSerializer(), () -> ConfigShadowHandler::handle, NetworkDirection.PLAY_TO_CLIENT);
        
         this.register(new TeRequestSerializer(), () -> TeRequestHandler::handle, NetworkDirection.PLAY_TO_SERVER);
+        this.register(new ConfigRequestSerializer(), () -> ConfigRequestHandler::handle, NetworkDirection.PLAY_TO_SERVER);
+        this.register(new QuickMoveAllSerializer(), () -> QuickMoveAllHandler::handle, NetworkDirection.PLAY_TO_SERVER);
     }
 
     /**
      * Sends the nbt tag retrieved from {@code TileEntity#getUpdateTag} from the tile entity at the given
      * position to all clients tracking the chunk. On the client the tag is passed
      * to {@code TileEntity#handleUpdateTag}. Does nothing when called on the client.
+     * If the tag was sent before, only the difference to the last sent tag is sent if that's smaller.
+     * The update is always sent, even if the tag did not change, so this can be used to resync a tile
+     * entity on the client.
      */
     public void updateTE(World world, BlockPos pos) {
-        if (!world.isRemote) {
-            this.updateTE(PacketDistributor.TRACKING_CHUNK.with(() -> world.getChunkAt(pos)), world, pos);
+        if (!world.isRemote && world instanceof ServerWorld) {
+            TeUpdateEntry entry = this.createTrackingEntry(world, pos, true);
+            if (entry != null) {
+                this.commitTrackingEntry(world, entry);
+                ((ServerWorld) world).getChunkProvider().chunkManager.getTrackingPlayers(new ChunkPos(pos), false)
+                        .forEach(player -> this.instance.send(PacketDistributor.PLAYER.with(() -> player), entryFor(player, entry).toMessage()));
+            }
+        }
+    }
+
+    /**
+     * Does the same as {@link NetworkImpl#updateTE(World, BlockPos)} for many positions at once. The updates
+     * are grouped by chunk and each player tracking at least one of the chunks receives one batched packet.
+     */
+    public void updateTEs(World world, Collection<BlockPos> positions) {
+        if (!world.isRemote && world instanceof ServerWorld) {
+            Long2ObjectMap<List<TeUpdateEntry>> chunks = new Long2ObjectOpenHashMap<>();
+            for (BlockPos pos : positions) {
+                TeUpdateEntry entry = this.createTrackingEntry(world, pos, true);
+                if (entry != null) {
+                    this.commitTrackingEntry(world, entry);
+                    chunks.computeIfAbsent(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4), k -> new ArrayList<>()).add(entry);
+                }
+            }
+            this.sendBatched((ServerWorld) world, chunks);
+        }
+    }
+
+    private void sendBatched(ServerWorld world, Long2ObjectMap<List<TeUpdateEntry>> chunks) {
+        Map<ServerPlayerEntity, List<TeBatchSerializer.ChunkUpdates>> playerUpdates = new HashMap<>();
+        for (Long2ObjectMap.Entry<List<TeUpdateEntry>> entry : chunks.long2ObjectEntrySet()) {
+            ChunkPos chunkPos = new ChunkPos(entry.getLongKey());
+            TeBatchSerializer.ChunkUpdates updates = new TeBatchSerializer.ChunkUpdates(chunkPos, entry.getValue());
+            world.getChunkProvider().chunkManager.getTrackingPlayers(chunkPos, false)
+                    .forEach(player -> playerUpdates.computeIfAbsent(player, p -> new ArrayList<>()).add(updatesFor(player, updates)));
+        }
+        for (Map.Entry<ServerPlayerEntity, List<TeBatchSerializer.ChunkUpdates>> entry : playerUpdates.entrySet()) {
+            this.sendBatch(entry.getKey(), entry.getValue());
+        }
+    }
+
+    void sendBatch(ServerPlayerEntity player, List<TeBatchSerializer.ChunkUpdates> chunks) {
+        // Split into multiple packets if the payload gets too large for one custom payload packet.
+        List<TeBatchSerializer.ChunkUpdates> batch = new ArrayList<>();
+        int batchSize = 0;
+        for (TeBatchSerializer.ChunkUpdates updates : chunks) {
+            int size = updates.size();
+            if (!batch.isEmpty() && batchSize + size > MAX_BATCH_SIZE) {
+                this.instance.send(PacketDistributor.PLAYER.with(() -> player), new TeBatchSerializer.TeBatchMessage(batch));
+                batch = new ArrayList<>();
+                batchSize = 0;
+            }
+            batch.add(updates);
+            batchSize += size;
+        }
+        if (!batch.isEmpty()) {
+            this.instance.send(PacketDistributor.PLAYER.with(() -> player), new TeBatchSerializer.TeBatchMessage(batch));
+        }
+    }
+
+    // Creates the answer to a tile entity request from a player. This is always a full update. If the
+    // tile entity was sent to the tracking players before, the answer is the snapshot they received, so
+    // deltas sent to all tracking players later apply on the requesting client as well. Changes made since
+    // then are still queued and reach the player with the next tracking update.
+    @Nullable
+    TeUpdateEntry createRequestEntry(ServerWorld world, BlockPos pos) {
+        //noinspection deprecation
+        if (!world.isBlockLoaded(pos))
+            return null;
+        TileEntity te = world.getTileEntity(pos);
+        if (te == null)
+            return null;
+        ResourceLocation id = te.getType().getRegistryName();
+        if (id == null)
+            return null;
+        SequencedTag snapshot = TeSnapshotCache.get(world, pos);
+        if (snapshot != null) {
+            return TeUpdateEntry.full(pos.toImmutable(), id, snapshot.nbt, snapshot.sequence);
+        }
+        // Not sent to the tracking players yet, so their next update is a full update as well.
+        CompoundNBT nbt = te.getUpdateTag();
+        //noinspection ConstantConditions
+        if (nbt == null)
+            return null;
+        return TeUpdateEntry.full(pos.toImmutable(), id, nbt, SequencedTag.NO_SEQUENCE);
+    }
+
+    // Creates the update for all players tracking a tile entity. This is either a full update, a
+    // delta to the last tag sent to the tracking players or null if nothing has changed and the
+    // update is not forced. The entry must be passed to commitTrackingEntry when it is sent and
+    // each player must get the entry from entryFor.
+    @Nullable
+    TeUpdateEntry createTrackingEntry(World world, BlockPos pos, boolean force) {
+        TileEntity te = world.getTileEntity(pos);
+        if (te == null) {
+            TeSnapshotCache.remove(world, pos);
+            return null;
+        }
+        CompoundNBT nbt = te.getUpdateTag();
+        //noinspection ConstantConditions
+        if (nbt == null)
+            return null;
+        ResourceLocation id = te.getType().getRegistryName();
+        if (id == null)
+            return null;
+        CompoundNBT snapshot = nbt.copy();
+        TeSnapshotCache.Snapshot base = TeSnapshotCache.get(world, pos);
+        long sequence = TeSnapshotCache.nextSequence();
+        TeUpdateEntry full = TeUpdateEntry.full(pos.toImmutable(), id, nbt, sequence);
+        full.snapshot = snapshot;
+        full.fullSize = full.size();
+        if (base == null) {
+            return full;
+        }
+        NbtDelta delta = NbtDelta.compute(base.nbt, snapshot);
+        if (delta.isEmpty() && !force) {
+            TeSyncStats.skipped(full.size());
+            return null;
+        }
+        // An empty delta still makes the client reapply its copy of the tag.
+        TeUpdateEntry deltaEntry = TeUpdateEntry.delta(pos.toImmutable(), id, base.sequence, sequence, delta);
+        deltaEntry.snapshot = snapshot;
+        deltaEntry.fullSize = full.size();
+        deltaEntry.fullEntry = full;
+        deltaEntry.baseTime = base.time;
+        return deltaEntry.size() < full.size() ? deltaEntry : full;
+    }
+
+    void commitTrackingEntry(World world, TeUpdateEntry entry) {
+        if (entry.snapshot != null) {
+            TeSnapshotCache.put(world, entry.pos, entry.snapshot, entry.sequence, world.getGameTime());
+        }
+        if (entry.isDelta()) {
+            TeSyncStats.delta(entry.size(), entry.fullSize);
+        } else {
+            TeSyncStats.full(entry.size());
         }
     }
 
-    void updateTE(PacketDistributor.PacketTarget target, World world, BlockPos pos) {
-        if (!world.isRemote) {
-            TileEntity te = world.getTileEntity(pos);
-            if (te == null)
-                return;
-            CompoundNBT nbt = te.getUpdateTag();
-            //noinspection ConstantConditions
-            if (nbt == null)
-                return;
-            ResourceLocation id = te.getType().getRegistryName();
-            if (id == null)
-                return;
-            this.instance.send(target, new TeUpdateSerializer.TeUpdateMessage(pos, id, nbt));
+    // Players that got the chunk after the base of a delta was sent have the tile entity from the chunk
+    // packet but not the base tag, so they get the full update instead.
+    static TeUpdateEntry entryFor(ServerPlayerEntity player, TeUpdateEntry entry) {
+        if (entry.isDelta() && entry.fullEntry != null) {
+            long chunkSent = TeChunkTracker.chunkSentTime(player, entry.pos);
+            if (chunkSent < 0 || chunkSent >= entry.baseTime) {
+                return entry.fullEntry;
+            }
         }
+        return entry;
+    }
+
+    // Same as entryFor for all updates in a chunk. Returns the given updates if no entry is replaced.
+    static TeBatchSerializer.ChunkUpdates updatesFor(ServerPlayerEntity player, TeBatchSerializer.ChunkUpdates updates) {
+        List<TeUpdateEntry> entries = null;
+        for (int i = 0; i < updates.entries.size(); i++) {
+            TeUpdateEntry entry = updates.entries.get(i);
+            TeUpdateEntry playerEntry = entryFor(player, entry);
+            if (playerEntry != entry && entries == null) {
+                entries = new ArrayList<>(updates.entries);
+            }
+            if (entries != null) {
+                entries.set(i, playerEntry);
+            }
+        }
+        return entries == null ? updates : new TeBatchSerializer.ChunkUpdates(updates.pos, entries);
     }
 
     /**
      * Requests the tile entity at the given position from the server. This is automatically done when
-     * a {@link io.github.noeppi_noeppi.libx.mod.registration.TileEntityBase} is loaded. The server will
-     * send an update packet as described in {@link NetworkImpl#updateTE(World, BlockPos)} to the client.
-     * Does nothing when called on the server.
+     * a {@link io.github.noeppi_noeppi.libx.mod.registration.TileEntityBase} is loaded. Requests are
+     * collected and sent together at the end of the client tick. The server will send an update
+     * as described in {@link NetworkImpl#updateTE(World, BlockPos)} to the client unless the tile
+     * entity was already sent with the chunk. Does nothing when called on the server.
      */
     public void requestTE(World world, BlockPos pos) {
+        this.requestTE(world, pos, false);
+    }
+
+    // Forced requests are always answered by the server, even if the chunk contained the tile entity.
+    void requestTE(World world, BlockPos pos, boolean force) {
         if (world.isRemote) {
-            this.instance.sendToServer(new TeRequestSerializer.TeRequestMessage(pos));
+            TeRequestQueue.request(world, pos.toImmutable(), force);
         }
     }
+
+    void sendRequests(List<BlockPos> positions, List<BlockPos> forced) {
+        this.instance.sendToServer(new TeRequestSerializer.TeRequestMessage(positions, forced));
+    }
+
+    /**
+     * Asks the server to quick move all stacks that match the stack in the given slot of the open
+     * {@link io.github.noeppi_noeppi.libx.inventory.container.CommonContainer common container}. See
+     * {@link io.github.noeppi_noeppi.libx.inventory.container.CommonContainer#transferAllOfType(net.minecraft.entity.player.PlayerEntity, int) transferAllOfType}.
+     */
+    public void requestQuickMoveAll(int windowId, int slot) {
+        this.instance.sendToServer(new QuickMoveAllSerializer.QuickMoveAllMessage(windowId, slot));
+    }
 }
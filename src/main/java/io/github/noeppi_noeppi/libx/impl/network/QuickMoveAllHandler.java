@@ -0,0 +1,28 @@
+package io.github.noeppi_noeppi.libx.impl.network;
+
+import io.github.noeppi_noeppi.libx.inventory.container.CommonContainer;
+import net.minecraft.entity.player.ServerPlayerEntity;
+import net.minecraftforge.fml.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+public class QuickMoveAllHandler {
+
+    public static void handle(QuickMoveAllSerializer.QuickMoveAllMessage msg, Supplier<NetworkEvent.Context> ctx) {
+        ctx.get().enqueueWork(() -> {
+            ServerPlayerEntity sender = ctx.get().getSender();
+            if (sender == null || sender.isSpectator() || !(sender.openContainer instanceof CommonContainer))
+                return;
+            CommonContainer container = (CommonContainer) sender.openContainer;
+            if (container.windowId != msg.windowId || !container.canInteractWith(sender)
+                    || msg.slot < 0 || msg.slot >= container.inventorySlots.size())
+                return;
+            sender.markPlayerActive();
+            if (container.transferAllOfType(sender, msg.slot)) {
+                // Not a click packet, so vanilla doesn't send the changes.
+                container.detectAndSendChanges();
+            }
+        });
+        ctx.get().setPacketHandled(true);
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.noeppi_noeppi.libx.impl.network;
+
+import io.github.noeppi_noeppi.libx.network.PacketSerializer;
+import net.minecraft.network.PacketBuffer;
+
+public class QuickMoveAllSerializer implements PacketSerializer<QuickMoveAllSerializer.QuickMoveAllMessage> {
+
+    @Override
+    public Class<QuickMoveAllMessage> messageClass() {
+        return QuickMoveAllMessage.class;
+    }
+
+    @Override
+    public void encode(QuickMoveAllMessage msg, PacketBuffer buffer) {
+        buffer.writeVarInt(msg.windowId);
+        buffer.writeVarInt(msg.slot);
+    }
+
+    @Override
+    public QuickMoveAllMessage decode(PacketBuffer buffer) {
+        return new QuickMoveAllMessage(buffer.readVarInt(), buffer.readVarInt());
+    }
+
+    // Sent by the client on a shift double click in the screen of a common container.
+    public static class QuickMoveAllMessage {
+
+        public QuickMoveAllMessage() {
+
+        }
+
+        public QuickMoveAllMessage(int windowId, int slot) {
+            this.windowId = windowId;
+            this.slot = slot;
+        }
+
+        public int windowId;
+        public int slot;
+    }
+}
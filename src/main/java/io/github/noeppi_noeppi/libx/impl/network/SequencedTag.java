@@ -0,0 +1,21 @@
+package io.github.noeppi_noeppi.libx.impl.network;
+
+import net.minecraft.nbt.CompoundNBT;
+
+/**
+ * A tile entity tag together with the sequence number it was sent with. Deltas name the sequence
+ * number of the tag they were computed against, so the client can tell whether it has that tag.
+ */
+public class SequencedTag {
+
+    // Sent with tags that are not the base for any delta.
+    public static final long NO_SEQUENCE = 0;
+
+    public final CompoundNBT nbt;
+    public final long sequence;
+
+    public SequencedTag(CompoundNBT nbt, long sequence) {
+        this.nbt = nbt;
+        this.sequence = sequence;
+    }
+}
@@ -0,0 +1,28 @@
+package io.github.noeppi_noeppi.libx.impl.network;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+public class TeBatchHandler {
+
+    public static void handle(TeBatchSerializer.TeBatchMessage msg, Supplier<NetworkEvent.Context> ctx) {
+        ctx.get().enqueueWork(() -> {
+            World world = Minecraft.getInstance().world;
+            if (world == null)
+                return;
+            for (TeBatchSerializer.ChunkUpdates chunk : msg.chunks) {
+                for (TeUpdateEntry entry : chunk.entries) {
+                    if (entry.delta != null) {
+                        TeDeltaHandler.update(world, entry.pos, entry.id, entry.baseSequence, entry.sequence, entry.delta);
+                    } else if (entry.nbt != null) {
+                        TeUpdateHandler.update(world, entry.pos, entry.id, entry.sequence, entry.nbt);
+                    }
+                }
+            }
+        });
+        ctx.get().setPacketHandled(true);
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.noeppi_noeppi.libx.impl.network;
+
+import com.google.common.collect.ImmutableList;
+import io.github.noeppi_noeppi.libx.network.PacketSerializer;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.network.PacketBuffer;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends many tile entity updates in one packet. Updates are grouped by chunk and positions are encoded
+ * relative to their chunk. Tile entity type ids are written once per packet into a table and referenced
+ * by index.
+ */
+public class TeBatchSerializer implements PacketSerializer<TeBatchSerializer.TeBatchMessage> {
+
+    @Override
+    public Class<TeBatchMessage> messageClass() {
+        return TeBatchMessage.class;
+    }
+
+    @Override
+    public void encode(TeBatchMessage msg, PacketBuffer buffer) {
+        List<ResourceLocation> ids = new ArrayList<>();
+        Object2IntMap<ResourceLocation> idTable = new Object2IntOpenHashMap<>();
+        idTable.defaultReturnValue(-1);
+        for (ChunkUpdates chunk : msg.chunks) {
+            for (TeUpdateEntry entry : chunk.entries) {
+                if (!idTable.containsKey(entry.id)) {
+                    idTable.put(entry.id, ids.size());
+                    ids.add(entry.id);
+                }
+            }
+        }
+        buffer.writeVarInt(ids.size());
+        for (ResourceLocation id : ids) {
+            buffer.writeResourceLocation(id);
+        }
+        buffer.writeVarInt(msg.chunks.size());
+        for (ChunkUpdates chunk : msg.chunks) {
+            buffer.writeVarInt(chunk.pos.x);
+            buffer.writeVarInt(chunk.pos.z);
+            buffer.writeVarInt(chunk.entries.size());
+            for (TeUpdateEntry entry : chunk.entries) {
+                buffer.writeShort(packRelative(entry.pos));
+                buffer.writeVarInt(idTable.getInt(entry.id));
+                buffer.writeBoolean(entry.isDelta());
+                entry.writePayload(buffer);
+            }
+        }
+    }
+
+    @Override
+    public TeBatchMessage decode(PacketBuffer buffer) {
+        int idSize = buffer.readVarInt();
+        ResourceLocation[] ids = new ResourceLocation[idSize];
+        for (int i = 0; i < idSize; i++) {
+            ids[i] = buffer.readResourceLocation();
+        }
+        int chunkSize = buffer.readVarInt();
+        ImmutableList.Builder<ChunkUpdates> chunks = ImmutableList.builder();
+        for (int i = 0; i < chunkSize; i++) {
+            ChunkPos chunkPos = new ChunkPos(buffer.readVarInt(), buffer.readVarInt());
+            int entrySize = buffer.readVarInt();
+            ImmutableList.Builder<TeUpdateEntry> entries = ImmutableList.builder();
+            for (int j = 0; j < entrySize; j++) {
+                BlockPos pos = unpackRelative(chunkPos, buffer.readShort());
+                ResourceLocation id = ids[buffer.readVarInt()];
+                entries.add(TeUpdateEntry.readPayload(pos, id, buffer.readBoolean(), buffer));
+            }
+            chunks.add(new ChunkUpdates(chunkPos, entries.build()));
+        }
+        return new TeBatchMessage(chunks.build());
+    }
+
+    // 8 bits y, 4 bits x, 4 bits z
+    private static short packRelative(BlockPos pos) {
+        return (short) (((pos.getY() & 0xFF) << 8) | ((pos.getX() & 0xF) << 4) | (pos.getZ() & 0xF));
+    }
+
+    private static BlockPos unpackRelative(ChunkPos chunk, short packed) {
+        return new BlockPos(chunk.getXStart() + ((packed >> 4) & 0xF), (packed >> 8) & 0xFF, chunk.getZStart() + (packed & 0xF));
+    }
+
+    public static class TeBatchMessage {
+
+        public TeBatchMessage() {
+
+        }
+
+        public TeBatchMessage(List<ChunkUpdates> chunks) {
+            this.chunks = chunks;
+        }
+
+        public List<ChunkUpdates> chunks;
+    }
+
+    public static class ChunkUpdates {
+
+        public final ChunkPos pos;
+        public final List<TeUpdateEntry> entries;
+
+        public ChunkUpdates(ChunkPos pos, List<TeUpdateEntry> entries) {
+            this.pos = pos;
+            this.entries = entries;
+        }
+
+        // The amount of payload bytes of all entries in this chunk.
+        public int size() {
+            int size = 0;
+            for (TeUpdateEntry entry : this.entries) {
+                size += entry.size();
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.noeppi_noeppi.libx.impl.network;
+
+import io.github.noeppi_noeppi.libx.mod.registration.TileEntityBase;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import net.minecraft.entity.player.ServerPlayerEntity;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.server.ServerWorld;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.ChunkWatchEvent;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Tracks when chunks were sent to players. The chunk packet contains the update tags of all tile
+ * entities in the chunk, so requests for tile entities that already existed when the chunk was
+ * sent don't need to be answered. Also drops cached tile entity tags for chunks that are unloaded
+ * or no longer tracked.
+ */
+public class TeChunkTracker {
+
+    private static final Map<ServerPlayerEntity, Long2LongMap> sentChunks = new WeakHashMap<>();
+
+    public static void watch(ChunkWatchEvent.Watch event) {
+        Long2LongMap chunks = sentChunks.computeIfAbsent(event.getPlayer(), p -> {
+            Long2LongMap map = new Long2LongOpenHashMap();
+            map.defaultReturnValue(-1);
+            return map;
+        });
+        chunks.put(event.getPos().asLong(), event.getWorld().getGameTime());
+    }
+
+    public static void unwatch(ChunkWatchEvent.UnWatch event) {
+        Long2LongMap chunks = sentChunks.get(event.getPlayer());
+        if (chunks != null) {
+            chunks.remove(event.getPos().asLong());
+        }
+        // Players that start tracking the chunk again get the tile entities with the chunk packet,
+        // so the snapshots are only needed while someone tracks the chunk.
+        ServerWorld world = event.getWorld();
+        if (world.getChunkProvider().chunkManager.getTrackingPlayers(event.getPos(), false).allMatch(player -> player == event.getPlayer())) {
+            TeSnapshotCache.removeChunk(world, event.getPos());
+        }
+    }
+
+    public static void unload(ChunkEvent.Unload event) {
+        if (event.getWorld() instanceof World) {
+            World world = (World) event.getWorld();
+            if (world.isRemote) {
+                TeClientCache.removeChunk(world, event.getChunk().getPos());
+            } else {
+                TeSnapshotCache.removeChunk(world, event.getChunk().getPos());
+            }
+        }
+    }
+
+    /**
+     * Gets the game time when the chunk containing the given position was last sent to the player
+     * or -1 if the player does not track that chunk.
+     */
+    public static long chunkSentTime(ServerPlayerEntity player, BlockPos pos) {
+        Long2LongMap chunks = sentChunks.get(player);
+        return chunks == null ? -1 : chunks.get(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+    }
+
+    /**
+     * Gets whether the update tag of the tile entity at the given position was sent to the player
+     * with the chunk packet.
+     */
+    public static boolean sentWithChunk(ServerPlayerEntity player, ServerWorld world, BlockPos pos) {
+        Long2LongMap chunks = sentChunks.get(player);
+        if (chunks == null || player.getServerWorld() != world) {
+            return false;
+        }
+        long chunkSent = chunks.get(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+        //noinspection deprecation
+        if (chunkSent < 0 || !world.isBlockLoaded(pos)) {
+            return false;
+        }
+        TileEntity te = world.getTileEntity(pos);
+        if (te instanceof TileEntityBase) {
+            long loadTime = ((TileEntityBase) te).getLoadTime();
+            // Tile entities loaded in the same tick might have been added after the chunk was sent.
+            return loadTime >= 0 && chunkSent > loadTime;
+        } else {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.noeppi_noeppi.libx.impl.network;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+import javax.annotation.Nullable;
+
+/**
+ * Holds the last tile entity tags the client received from the server. These are the base for
+ * applying tile entity deltas. Only the tags for the current client world are stored and tags
+ * are dropped when their chunk is unloaded.
+ */
+public class TeClientCache {
+
+    private static World world = null;
+    private static final Long2ObjectMap<Long2ObjectMap<SequencedTag>> tags = new Long2ObjectOpenHashMap<>();
+
+    @Nullable
+    public static SequencedTag get(World world, BlockPos pos) {
+        if (TeClientCache.world != world) {
+            return null;
+        }
+        Long2ObjectMap<SequencedTag> chunk = tags.get(chunkKey(pos));
+        return chunk == null ? null : chunk.get(pos.toLong());
+    }
+
+    public static void put(World world, BlockPos pos, CompoundNBT nbt, long sequence) {
+        if (TeClientCache.world != world) {
+            tags.clear();
+            TeClientCache.world = world;
+        }
+        tags.computeIfAbsent(chunkKey(pos), c -> new Long2ObjectOpenHashMap<>()).put(pos.toLong(), new SequencedTag(nbt, sequence));
+    }
+
+    public static void remove(World world, BlockPos pos) {
+        if (TeClientCache.world == world) {
+            Long2ObjectMap<SequencedTag> chunk = tags.get(chunkKey(pos));
+            if (chunk != null) {
+                chunk.remove(pos.toLong());
+                if (chunk.isEmpty()) {
+                    tags.remove(chunkKey(pos));
+                }
+            }
+        }
+    }
+
+    public static void removeChunk(World world, ChunkPos pos) {
+        if (TeClientCache.world == world) {
+            tags.remove(pos.asLong());
+        }
+    }
+
+    public static void unload(World world) {
+        if (TeClientCache.world == world) {
+            tags.clear();
+            TeClientCache.world = null;
+        }
+    }
+
+    private static long chunkKey(BlockPos pos) {
+        return ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+    }
+}
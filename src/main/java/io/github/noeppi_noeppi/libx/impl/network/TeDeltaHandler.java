@@ -0,0 +1,41 @@
+package io.github.noeppi_noeppi.libx.impl.network;
+
+import io.github.noeppi_noeppi.libx.LibX;
+import net.minecraft.client.Minecraft;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+public class TeDeltaHandler {
+
+    public static void handle(TeDeltaSerializer.TeDeltaMessage msg, Supplier<NetworkEvent.Context> ctx) {
+        ctx.get().enqueueWork(() -> {
+            World world = Minecraft.getInstance().world;
+            if (world == null)
+                return;
+            update(world, msg.pos, msg.id, msg.baseSequence, msg.sequence, msg.delta);
+        });
+        ctx.get().setPacketHandled(true);
+    }
+
+    static void update(World world, BlockPos pos, ResourceLocation id, long baseSequence, long sequence, NbtDelta delta) {
+        TileEntity te = world.getTileEntity(pos);
+        if (te != null && id.equals(te.getType().getRegistryName())) {
+            SequencedTag base = TeClientCache.get(world, pos);
+            CompoundNBT nbt = base == null || base.sequence != baseSequence ? null : delta.apply(base.nbt);
+            if (nbt == null) {
+                // We don't have the state the server computed the delta against. Request the full tag.
+                TeClientCache.remove(world, pos);
+                LibX.getNetwork().requestTE(world, pos, true);
+            } else {
+                TeClientCache.put(world, pos, nbt, sequence);
+                te.handleUpdateTag(world.getBlockState(pos), nbt);
+            }
+        }
+    }
+}
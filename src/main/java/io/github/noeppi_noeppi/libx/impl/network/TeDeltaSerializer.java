@@ -0,0 +1,55 @@
+package io.github.noeppi_noeppi.libx.impl.network;
+
+import io.github.noeppi_noeppi.libx.network.PacketSerializer;
+import net.minecraft.network.PacketBuffer;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.BlockPos;
+
+public class TeDeltaSerializer implements PacketSerializer<TeDeltaSerializer.TeDeltaMessage> {
+
+    @Override
+    public Class<TeDeltaMessage> messageClass() {
+        return TeDeltaMessage.class;
+    }
+
+    @Override
+    public void encode(TeDeltaMessage msg, PacketBuffer buffer) {
+        buffer.writeBlockPos(msg.pos);
+        buffer.writeResourceLocation(msg.id);
+        buffer.writeVarLong(msg.baseSequence);
+        buffer.writeVarLong(msg.sequence);
+        msg.delta.write(buffer);
+    }
+
+    @Override
+    public TeDeltaMessage decode(PacketBuffer buffer) {
+        TeDeltaMessage msg = new TeDeltaMessage();
+        msg.pos = buffer.readBlockPos();
+        msg.id = buffer.readResourceLocation();
+        msg.baseSequence = buffer.readVarLong();
+        msg.sequence = buffer.readVarLong();
+        msg.delta = NbtDelta.read(buffer);
+        return msg;
+    }
+
+    public static class TeDeltaMessage {
+
+        public TeDeltaMessage() {
+        }
+
+        public TeDeltaMessage(BlockPos pos, ResourceLocation id, long baseSequence, long sequence, NbtDelta delta) {
+            this.pos = pos;
+            this.id = id;
+            this.baseSequence = baseSequence;
+            this.sequence = sequence;
+            this.delta = delta;
+        }
+
+        public BlockPos pos;
+        public ResourceLocation id;
+        // Sequence number of the tag the delta was computed against. Used to detect a missing baseline on the client.
+        public long baseSequence;
+        public long sequence;
+        public NbtDelta delta;
+    }
+}
@@ -0,0 +1,315 @@
+package io.github.noeppi_noeppi.libx.impl.network;
+
+import io.github.noeppi_noeppi.libx.LibX;
+import io.github.noeppi_noeppi.libx.impl.LibXConfig;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.entity.player.ServerPlayerEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.server.ServerWorld;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which of the queued tile entity updates are sent in a tick. Answers to tile entity requests
+ * are sent first, followed by the queued updates ordered by the distance to the nearest player tracking
+ * them. Updates that waited longer are preferred over closer ones so distant tile entities are not starved.
+ * This goes on until the budgets from {@link LibXConfig.TileEntitySync} are used up. Everything else stays
+ * in the queue for the next tick.
+ */
+public class TeDispatchScheduler {
+
+    private static final Map<World, Long2LongMap> lastDispatch = new WeakHashMap<>();
+    private static final Map<World, Long2LongMap> queuedSince = new WeakHashMap<>();
+    private static final Map<ServerPlayerEntity, Requests> requests = new WeakHashMap<>();
+
+    /**
+     * Queues the answers to tile entity requests from a player. They're sent with the next dispatch.
+     */
+    public static void request(ServerPlayerEntity player, ServerWorld world, Collection<BlockPos> positions) {
+        if (positions.isEmpty()) {
+            return;
+        }
+        Requests playerRequests = requests.get(player);
+        if (playerRequests == null || playerRequests.world != world) {
+            // Requests for the previous world of the player are no longer needed.
+            playerRequests = new Requests(world);
+            requests.put(player, playerRequests);
+        }
+        for (BlockPos pos : positions) {
+            playerRequests.positions.add(pos.toLong());
+        }
+    }
+
+    /**
+     * Gets whether there are requests waiting to be answered.
+     */
+    public static boolean hasRequests() {
+        return !requests.isEmpty();
+    }
+
+    /**
+     * Sends the queued updates and request answers that fit into the budget and removes them from the queue.
+     */
+    public static void dispatch(Map<World, LongSet> queue) {
+        int interval = Math.max(1, (int) Math.ceil(20d / Math.max(1, LibXConfig.TileEntitySync.maxUpdatesPerSecond)));
+        Budget budget = new Budget(LibXConfig.TileEntitySync.tickBudget, LibXConfig.TileEntitySync.playerBudget);
+        Map<ServerPlayerEntity, List<TeBatchSerializer.ChunkUpdates>> playerUpdates = new HashMap<>();
+
+        int deferred = answerRequests(budget, playerUpdates);
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (Map.Entry<World, LongSet> entry : queue.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            } else if (!(entry.getKey() instanceof ServerWorld)) {
+                entry.getValue().clear();
+                continue;
+            }
+            ServerWorld world = (ServerWorld) entry.getKey();
+            long gameTime = world.getGameTime();
+            Long2LongMap last = lastDispatch(world);
+            Long2LongMap since = queuedSince(world);
+            if (gameTime % 200 == 0) {
+                last.long2LongEntrySet().removeIf(e -> gameTime - e.getLongValue() >= interval);
+                since.keySet().retainAll(entry.getValue());
+            }
+            Long2ObjectMap<List<ServerPlayerEntity>> tracking = new Long2ObjectOpenHashMap<>();
+            LongIterator itr = entry.getValue().iterator();
+            while (itr.hasNext()) {
+                long packed = itr.nextLong();
+                if (last.containsKey(packed) && gameTime - last.get(packed) < interval) {
+                    // Updated too recently. The update will contain all changes up to the time it's sent.
+                    TeSyncStats.deferredRate();
+                    deferred += 1;
+                    continue;
+                }
+                BlockPos pos = BlockPos.fromLong(packed);
+                long chunk = ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+                List<ServerPlayerEntity> players = tracking.computeIfAbsent(chunk, c -> world.getChunkProvider().chunkManager
+                        .getTrackingPlayers(new ChunkPos(c), false).collect(Collectors.toList()));
+                if (players.isEmpty()) {
+                    itr.remove();
+                    since.remove(packed);
+                    continue;
+                }
+                double distanceSq = Double.MAX_VALUE;
+                for (ServerPlayerEntity player : players) {
+                    distanceSq = Math.min(distanceSq, player.getDistanceSq(pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5));
+                }
+                if (!since.containsKey(packed)) {
+                    since.put(packed, gameTime);
+                }
+                long waited = Math.max(0, gameTime - since.get(packed));
+                candidates.add(new Candidate(world, pos, chunk, players, distanceSq / (1 + waited)));
+            }
+        }
+        candidates.sort(Comparator.comparingDouble(candidate -> candidate.priority));
+
+        for (Candidate candidate : candidates) {
+            // Check the budget before creating the entry so deferred updates don't compute their tag each tick.
+            if (budget.isFull(candidate.players)) {
+                TeSyncStats.deferredBudget();
+                deferred += 1;
+                continue;
+            }
+            TeUpdateEntry entry = LibX.getNetwork().createTrackingEntry(candidate.world, candidate.pos, false);
+            if (entry == null) {
+                queue.get(candidate.world).remove(candidate.pos.toLong());
+                queuedSince(candidate.world).remove(candidate.pos.toLong());
+                continue;
+            }
+            if (!budget.use(entry.size(), candidate.players)) {
+                TeSyncStats.deferredBudget();
+                deferred += 1;
+                continue;
+            }
+            LibX.getNetwork().commitTrackingEntry(candidate.world, entry);
+            queue.get(candidate.world).remove(candidate.pos.toLong());
+            queuedSince(candidate.world).remove(candidate.pos.toLong());
+            lastDispatch(candidate.world).put(candidate.pos.toLong(), candidate.world.getGameTime());
+            candidate.entry = entry;
+        }
+
+        Map<ServerWorld, Long2ObjectMap<List<TeUpdateEntry>>> sent = new HashMap<>();
+        Map<ServerWorld, Long2ObjectMap<List<ServerPlayerEntity>>> trackingByWorld = new HashMap<>();
+        for (Candidate candidate : candidates) {
+            if (candidate.entry != null) {
+                sent.computeIfAbsent(candidate.world, w -> new Long2ObjectOpenHashMap<>())
+                        .computeIfAbsent(candidate.chunk, c -> new ArrayList<>()).add(candidate.entry);
+                trackingByWorld.computeIfAbsent(candidate.world, w -> new Long2ObjectOpenHashMap<>()).put(candidate.chunk, candidate.players);
+            }
+        }
+        for (Map.Entry<ServerWorld, Long2ObjectMap<List<TeUpdateEntry>>> entry : sent.entrySet()) {
+            Long2ObjectMap<List<ServerPlayerEntity>> tracking = trackingByWorld.get(entry.getKey());
+            for (Long2ObjectMap.Entry<List<TeUpdateEntry>> chunkEntry : entry.getValue().long2ObjectEntrySet()) {
+                TeBatchSerializer.ChunkUpdates updates = new TeBatchSerializer.ChunkUpdates(new ChunkPos(chunkEntry.getLongKey()), chunkEntry.getValue());
+                for (ServerPlayerEntity player : tracking.get(chunkEntry.getLongKey())) {
+                    playerUpdates.computeIfAbsent(player, p -> new ArrayList<>()).add(NetworkImpl.updatesFor(player, updates));
+                }
+            }
+        }
+        for (Map.Entry<ServerPlayerEntity, List<TeBatchSerializer.ChunkUpdates>> entry : playerUpdates.entrySet()) {
+            LibX.getNetwork().sendBatch(entry.getKey(), entry.getValue());
+        }
+
+        int queueDepth = 0;
+        for (LongSet positions : queue.values()) {
+            queueDepth += positions.size();
+        }
+        TeSyncStats.tick(queueDepth, deferred, budget.tickUsed);
+    }
+
+    // Request answers are only sent to the requesting player, so they only use that player's budget.
+    // Returns the amount of answers deferred to the next tick.
+    private static int answerRequests(Budget budget, Map<ServerPlayerEntity, List<TeBatchSerializer.ChunkUpdates>> playerUpdates) {
+        int deferred = 0;
+        Iterator<Map.Entry<ServerPlayerEntity, Requests>> playerItr = requests.entrySet().iterator();
+        while (playerItr.hasNext()) {
+            Map.Entry<ServerPlayerEntity, Requests> playerEntry = playerItr.next();
+            ServerPlayerEntity player = playerEntry.getKey();
+            Requests playerRequests = playerEntry.getValue();
+            if (player.hasDisconnected() || player.getServerWorld() != playerRequests.world) {
+                playerItr.remove();
+                continue;
+            }
+            List<ServerPlayerEntity> players = Collections.singletonList(player);
+            Long2ObjectMap<List<TeUpdateEntry>> chunks = new Long2ObjectOpenHashMap<>();
+            LongIterator itr = playerRequests.positions.iterator();
+            while (itr.hasNext()) {
+                long packed = itr.nextLong();
+                if (budget.isFull(players)) {
+                    TeSyncStats.deferredBudget();
+                    deferred += 1;
+                    continue;
+                }
+                BlockPos pos = BlockPos.fromLong(packed);
+                TeUpdateEntry entry = LibX.getNetwork().createRequestEntry(playerRequests.world, pos);
+                if (entry == null) {
+                    itr.remove();
+                    continue;
+                }
+                if (!budget.use(entry.size(), players)) {
+                    TeSyncStats.deferredBudget();
+                    deferred += 1;
+                    continue;
+                }
+                itr.remove();
+                TeSyncStats.full(entry.size());
+                chunks.computeIfAbsent(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4), k -> new ArrayList<>()).add(entry);
+            }
+            if (playerRequests.positions.isEmpty()) {
+                playerItr.remove();
+            }
+            for (Long2ObjectMap.Entry<List<TeUpdateEntry>> entry : chunks.long2ObjectEntrySet()) {
+                playerUpdates.computeIfAbsent(player, p -> new ArrayList<>())
+                        .add(new TeBatchSerializer.ChunkUpdates(new ChunkPos(entry.getLongKey()), entry.getValue()));
+            }
+        }
+        return deferred;
+    }
+
+    public static void unload(World world) {
+        lastDispatch.remove(world);
+        queuedSince.remove(world);
+        requests.values().removeIf(playerRequests -> playerRequests.world == world);
+    }
+
+    private static Long2LongMap lastDispatch(World world) {
+        return lastDispatch.computeIfAbsent(world, w -> new Long2LongOpenHashMap());
+    }
+
+    private static Long2LongMap queuedSince(World world) {
+        return queuedSince.computeIfAbsent(world, w -> new Long2LongOpenHashMap());
+    }
+
+    // The bytes used in the current tick in total and per player.
+    private static class Budget {
+
+        private final int tickBudget;
+        private final int playerBudget;
+        private final Object2IntMap<ServerPlayerEntity> playerUsed = new Object2IntOpenHashMap<>();
+        private int tickUsed = 0;
+
+        private Budget(int tickBudget, int playerBudget) {
+            this.tickBudget = tickBudget;
+            this.playerBudget = playerBudget;
+        }
+
+        // Whether nothing more can be sent to any of the players.
+        public boolean isFull(List<ServerPlayerEntity> players) {
+            if (this.tickBudget > 0 && this.tickUsed >= this.tickBudget) {
+                return true;
+            }
+            if (this.playerBudget > 0) {
+                for (ServerPlayerEntity player : players) {
+                    if (this.playerUsed.getInt(player) >= this.playerBudget) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        // Uses the given amount of bytes if they fit into the budget. The first update in a tick
+        // always fits, so updates larger than the budget can't get stuck.
+        public boolean use(int size, List<ServerPlayerEntity> players) {
+            boolean fits = this.tickBudget <= 0 || this.tickUsed == 0 || this.tickUsed + size <= this.tickBudget;
+            if (fits && this.playerBudget > 0) {
+                for (ServerPlayerEntity player : players) {
+                    int used = this.playerUsed.getInt(player);
+                    if (used > 0 && used + size > this.playerBudget) {
+                        return false;
+                    }
+                }
+            }
+            if (!fits) {
+                return false;
+            }
+            this.tickUsed += size;
+            for (ServerPlayerEntity player : players) {
+                this.playerUsed.put(player, this.playerUsed.getInt(player) + size);
+            }
+            return true;
+        }
+    }
+
+    private static class Requests {
+
+        public final ServerWorld world;
+        public final LongSet positions = new LongOpenHashSet();
+
+        private Requests(ServerWorld world) {
+            this.world = world;
+        }
+    }
+
+    private static class Candidate {
+
+        public final ServerWorld world;
+        public final BlockPos pos;
+        public final long chunk;
+        public final List<ServerPlayerEntity> players;
+        public final double priority;
+        // Set once the update is sent.
+        public TeUpdateEntry entry = null;
+
+        private Candidate(ServerWorld world, BlockPos pos, long chunk, List<ServerPlayerEntity> players, double priority) {
+            this.world = world;
+            this.pos = pos;
+            this.chunk = chunk;
+            this.players = players;
+            this.priority = priority;
+        }
+    }
+}
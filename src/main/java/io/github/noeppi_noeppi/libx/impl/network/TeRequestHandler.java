@@ -1,11 +1,12 @@
 package io.github.noeppi_noeppi.libx.impl.network;
 
-import io.github.noeppi_noeppi.libx.LibX;
 import net.minecraft.entity.player.ServerPlayerEntity;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.server.ServerWorld;
 import net.minecraftforge.fml.network.NetworkEvent;
-import net.minecraftforge.fml.network.PacketDistributor;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Supplier;
 
 public class TeRequestHandler {
@@ -16,10 +17,13 @@ public class TeRequestHandler {
             if (sender == null)
                 return;
             ServerWorld world = sender.getServerWorld();
-            //noinspection deprecation
-            if (world.isBlockLoaded(msg.pos)) {
-                LibX.getNetwork().updateTE(PacketDistributor.PLAYER.with(() -> sender), world, msg.pos);
+            List<BlockPos> positions = new ArrayList<>(msg.forced);
+            for (BlockPos pos : msg.positions) {
+                if (!TeChunkTracker.sentWithChunk(sender, world, pos)) {
+                    positions.add(pos);
+                }
             }
+            TeDispatchScheduler.request(sender, world, positions);
         });
         ctx.get().setPacketHandled(true);
     }
@@ -0,0 +1,73 @@
+package io.github.noeppi_noeppi.libx.impl.network;
+
+import io.github.noeppi_noeppi.libx.LibX;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraftforge.event.TickEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects tile entity requests on the client during a tick and sends them as few packets
+ * at the end of the tick.
+ */
+public class TeRequestQueue {
+
+    // Client to server custom payloads are limited to 32767 bytes.
+    private static final int MAX_REQUESTS_PER_PACKET = 2048;
+
+    private static World world = null;
+    private static final LongOpenHashSet requests = new LongOpenHashSet();
+    private static final LongOpenHashSet forcedRequests = new LongOpenHashSet();
+
+    public static void request(World world, BlockPos pos, boolean force) {
+        if (TeRequestQueue.world != world) {
+            requests.clear();
+            forcedRequests.clear();
+            TeRequestQueue.world = world;
+        }
+        if (force) {
+            forcedRequests.add(pos.toLong());
+            requests.remove(pos.toLong());
+        } else if (!forcedRequests.contains(pos.toLong())) {
+            requests.add(pos.toLong());
+        }
+    }
+
+    public static void tick(TickEvent.ClientTickEvent event) {
+        if (event.phase == TickEvent.Phase.END && (!requests.isEmpty() || !forcedRequests.isEmpty())) {
+            List<BlockPos> positions = new ArrayList<>();
+            List<BlockPos> forced = new ArrayList<>();
+            LongIterator itr = forcedRequests.iterator();
+            while (itr.hasNext()) {
+                forced.add(BlockPos.fromLong(itr.nextLong()));
+                if (forced.size() >= MAX_REQUESTS_PER_PACKET) {
+                    send(positions, forced);
+                    forced = new ArrayList<>();
+                }
+            }
+            itr = requests.iterator();
+            while (itr.hasNext()) {
+                positions.add(BlockPos.fromLong(itr.nextLong()));
+                if (positions.size() + forced.size() >= MAX_REQUESTS_PER_PACKET) {
+                    send(positions, forced);
+                    positions = new ArrayList<>();
+                    forced = Collections.emptyList();
+                }
+            }
+            if (!positions.isEmpty() || !forced.isEmpty()) {
+                send(positions, forced);
+            }
+            requests.clear();
+            forcedRequests.clear();
+        }
+    }
+
+    private static void send(List<BlockPos> positions, List<BlockPos> forced) {
+        LibX.getNetwork().sendRequests(positions, forced);
+    }
+}
@@ -1,9 +1,12 @@
 package io.github.noeppi_noeppi.libx.impl.network;
 
+import com.google.common.collect.ImmutableList;
 import io.github.noeppi_noeppi.libx.network.PacketSerializer;
 import net.minecraft.network.PacketBuffer;
 import net.minecraft.util.math.BlockPos;
 
+import java.util.List;
+
 public class TeRequestSerializer implements PacketSerializer<TeRequestSerializer.TeRequestMessage> {
 
     @Override
@@ -13,26 +16,48 @@ public class TeRequestSerializer implements PacketSerializer<TeRequestSerializer
 
     @Override
     public void encode(TeRequestMessage msg, PacketBuffer buffer) {
-        buffer.writeBlockPos(msg.pos);
+        writePositions(msg.positions, buffer);
+        writePositions(msg.forced, buffer);
     }
 
     @Override
     public TeRequestMessage decode(PacketBuffer buffer) {
         TeRequestMessage msg = new TeRequestMessage();
-        msg.pos = buffer.readBlockPos();
+        msg.positions = readPositions(buffer);
+        msg.forced = readPositions(buffer);
         return msg;
     }
 
+    private static void writePositions(List<BlockPos> positions, PacketBuffer buffer) {
+        buffer.writeVarInt(positions.size());
+        for (BlockPos pos : positions) {
+            buffer.writeLong(pos.toLong());
+        }
+    }
+
+    private static List<BlockPos> readPositions(PacketBuffer buffer) {
+        int size = buffer.readVarInt();
+        ImmutableList.Builder<BlockPos> positions = ImmutableList.builder();
+        for (int i = 0; i < size; i++) {
+            positions.add(BlockPos.fromLong(buffer.readLong()));
+        }
+        return positions.build();
+    }
+
     public static class TeRequestMessage {
 
         public TeRequestMessage() {
 
         }
 
-        public TeRequestMessage(BlockPos pos) {
-            this.pos = pos;
+        public TeRequestMessage(List<BlockPos> positions, List<BlockPos> forced) {
+            this.positions = positions;
+            this.forced = forced;
         }
 
-        public BlockPos pos;
+        // The server may skip these if the tile entity data was already sent with the chunk.
+        public List<BlockPos> positions;
+        // The server will always answer these.
+        public List<BlockPos> forced;
     }
 }
@@ -0,0 +1,84 @@
+package io.github.noeppi_noeppi.libx.impl.network;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Holds the last tile entity tags that were sent to all players tracking a tile entity. Deltas
+ * for tile entity updates are computed against these. Tags are stored per chunk, so they can be
+ * dropped once a chunk is unloaded or no longer tracked by any player.
+ */
+public class TeSnapshotCache {
+
+    // Sequence numbers are unique across all worlds and positions, so a tag a client kept from an
+    // earlier snapshot can never be taken as the base of a delta.
+    private static long nextSequence = SequencedTag.NO_SEQUENCE + 1;
+    private static final Map<World, Long2ObjectMap<Long2ObjectMap<Snapshot>>> snapshots = new WeakHashMap<>();
+
+    public static long nextSequence() {
+        return nextSequence++;
+    }
+
+    @Nullable
+    public static Snapshot get(World world, BlockPos pos) {
+        Long2ObjectMap<Long2ObjectMap<Snapshot>> chunks = snapshots.get(world);
+        if (chunks == null) {
+            return null;
+        }
+        Long2ObjectMap<Snapshot> chunk = chunks.get(chunkKey(pos));
+        return chunk == null ? null : chunk.get(pos.toLong());
+    }
+
+    public static void put(World world, BlockPos pos, CompoundNBT nbt, long sequence, long time) {
+        snapshots.computeIfAbsent(world, w -> new Long2ObjectOpenHashMap<>())
+                .computeIfAbsent(chunkKey(pos), c -> new Long2ObjectOpenHashMap<>())
+                .put(pos.toLong(), new Snapshot(nbt, sequence, time));
+    }
+
+    public static void remove(World world, BlockPos pos) {
+        Long2ObjectMap<Long2ObjectMap<Snapshot>> chunks = snapshots.get(world);
+        if (chunks != null) {
+            Long2ObjectMap<Snapshot> chunk = chunks.get(chunkKey(pos));
+            if (chunk != null) {
+                chunk.remove(pos.toLong());
+                if (chunk.isEmpty()) {
+                    chunks.remove(chunkKey(pos));
+                }
+            }
+        }
+    }
+
+    public static void removeChunk(World world, ChunkPos pos) {
+        Long2ObjectMap<Long2ObjectMap<Snapshot>> chunks = snapshots.get(world);
+        if (chunks != null) {
+            chunks.remove(pos.asLong());
+        }
+    }
+
+    public static void unload(World world) {
+        snapshots.remove(world);
+    }
+
+    private static long chunkKey(BlockPos pos) {
+        return ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+    }
+
+    public static class Snapshot extends SequencedTag {
+
+        // The game time when the snapshot was sent. Players that got the chunk after that don't have it.
+        public final long time;
+
+        public Snapshot(CompoundNBT nbt, long sequence, long time) {
+            super(nbt, sequence);
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package io.github.noeppi_noeppi.libx.impl.network;
+
+/**
+ * Counters for the tile entity synchronisation. All values are counted since the game was started.
+ */
+public class TeSyncStats {
+
+    private static long fullUpdates = 0;
+    private static long deltaUpdates = 0;
+    private static long skippedUpdates = 0;
+    private static long bytesSent = 0;
+    private static long bytesSaved = 0;
+    private static long deferredBudget = 0;
+    private static long deferredRate = 0;
+    private static int queueDepth = 0;
+    private static int lastTickDeferred = 0;
+    private static int lastTickBytes = 0;
+
+    static void full(int bytes) {
+        fullUpdates += 1;
+        bytesSent += bytes;
+    }
+
+    static void delta(int bytes, int fullBytes) {
+        deltaUpdates += 1;
+        bytesSent += bytes;
+        bytesSaved += fullBytes - bytes;
+    }
+
+    static void skipped(int fullBytes) {
+        skippedUpdates += 1;
+        bytesSaved += fullBytes;
+    }
+
+    static void deferredBudget() {
+        deferredBudget += 1;
+    }
+
+    static void deferredRate() {
+        deferredRate += 1;
+    }
+
+    static void tick(int queueDepth, int deferred, int bytes) {
+        TeSyncStats.queueDepth = queueDepth;
+        lastTickDeferred = deferred;
+        lastTickBytes = bytes;
+    }
+
+    /**
+     * Gets the amount of updates that were sent with the full update tag.
+     */
+    public static long getFullUpdates() {
+        return fullUpdates;
+    }
+
+    /**
+     * Gets the amount of updates that were sent as a delta to the last sent tag.
+     */
+    public static long getDeltaUpdates() {
+        return deltaUpdates;
+    }
+
+    /**
+     * Gets the amount of updates that were not sent at all as nothing changed.
+     */
+    public static long getSkippedUpdates() {
+        return skippedUpdates;
+    }
+
+    /**
+     * Gets the amount of tile entity payload bytes sent.
+     */
+    public static long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Gets the amount of tile entity payload bytes that were saved by sending deltas
+     * instead of full tags.
+     */
+    public static long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    /**
+     * Gets how often an update was moved to the next tick because the tick or player budget was used up.
+     */
+    public static long getDeferredBudget() {
+        return deferredBudget;
+    }
+
+    /**
+     * Gets how often an update was moved to a later tick because the tile entity was updated too recently.
+     */
+    public static long getDeferredRate() {
+        return deferredRate;
+    }
+
+    /**
+     * Gets the amount of updates that are still queued after the last tick.
+     */
+    public static int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Gets the amount of updates that were deferred in the last tick.
+     */
+    public static int getLastTickDeferred() {
+        return lastTickDeferred;
+    }
+
+    /**
+     * Gets the amount of tile entity payload bytes sent in the last tick.
+     */
+    public static int getLastTickBytes() {
+        return lastTickBytes;
+    }
+}
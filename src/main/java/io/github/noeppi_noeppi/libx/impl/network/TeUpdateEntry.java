@@ -0,0 +1,120 @@
+package io.github.noeppi_noeppi.libx.impl.network;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.network.PacketBuffer;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.BlockPos;
+
+import javax.annotation.Nullable;
+import java.util.function.Consumer;
+
+/**
+ * One tile entity update that is sent to all players tracking the tile entity. This is either
+ * the full update tag or a delta to the last tag sent to the tracking players.
+ */
+public class TeUpdateEntry {
+
+    public final BlockPos pos;
+    public final ResourceLocation id;
+    @Nullable
+    public final CompoundNBT nbt;
+    // The sequence number of this tag and of the tag the delta was computed against.
+    public final long sequence;
+    public final long baseSequence;
+    @Nullable
+    public final NbtDelta delta;
+    private int size = -1;
+
+    // Only set on the server: The tag that becomes the new snapshot once this entry is sent
+    // and the size the full tag would have needed.
+    @Nullable
+    CompoundNBT snapshot = null;
+    int fullSize = -1;
+    // Only set on the server for deltas: The full entry for players that don't have the base
+    // and the game time the base was sent.
+    @Nullable
+    TeUpdateEntry fullEntry = null;
+    long baseTime = -1;
+
+    private TeUpdateEntry(BlockPos pos, ResourceLocation id, @Nullable CompoundNBT nbt, long sequence, long baseSequence, @Nullable NbtDelta delta) {
+        this.pos = pos;
+        this.id = id;
+        this.nbt = nbt;
+        this.sequence = sequence;
+        this.baseSequence = baseSequence;
+        this.delta = delta;
+    }
+
+    public static TeUpdateEntry full(BlockPos pos, ResourceLocation id, CompoundNBT nbt, long sequence) {
+        return new TeUpdateEntry(pos, id, nbt, sequence, SequencedTag.NO_SEQUENCE, null);
+    }
+
+    public static TeUpdateEntry delta(BlockPos pos, ResourceLocation id, long baseSequence, long sequence, NbtDelta delta) {
+        return new TeUpdateEntry(pos, id, null, sequence, baseSequence, delta);
+    }
+
+    public boolean isDelta() {
+        return this.delta != null;
+    }
+
+    /**
+     * Gets the amount of bytes the payload (tag or delta) needs.
+     */
+    public int size() {
+        if (this.size < 0) {
+            this.size = payloadSize(this::writePayload);
+        }
+        return this.size;
+    }
+
+    /**
+     * Creates a single update message for this entry.
+     */
+    public Object toMessage() {
+        if (this.delta != null) {
+            return new TeDeltaSerializer.TeDeltaMessage(this.pos, this.id, this.baseSequence, this.sequence, this.delta);
+        } else {
+            return new TeUpdateSerializer.TeUpdateMessage(this.pos, this.id, this.sequence, this.nbt);
+        }
+    }
+
+    /**
+     * Writes the sequence numbers and the tag or the delta.
+     */
+    public void writePayload(PacketBuffer buffer) {
+        if (this.delta != null) {
+            buffer.writeVarLong(this.baseSequence);
+            buffer.writeVarLong(this.sequence);
+            this.delta.write(buffer);
+        } else {
+            buffer.writeVarLong(this.sequence);
+            buffer.writeCompoundTag(this.nbt);
+        }
+    }
+
+    /**
+     * Reads an entry written with {@link TeUpdateEntry#writePayload(PacketBuffer)}.
+     */
+    public static TeUpdateEntry readPayload(BlockPos pos, ResourceLocation id, boolean isDelta, PacketBuffer buffer) {
+        if (isDelta) {
+            long baseSequence = buffer.readVarLong();
+            long sequence = buffer.readVarLong();
+            return delta(pos, id, baseSequence, sequence, NbtDelta.read(buffer));
+        } else {
+            long sequence = buffer.readVarLong();
+            CompoundNBT nbt = buffer.readCompoundTag();
+            return full(pos, id, nbt == null ? new CompoundNBT() : nbt, sequence);
+        }
+    }
+
+    static int payloadSize(Consumer<PacketBuffer> writer) {
+        PacketBuffer buffer = new PacketBuffer(Unpooled.buffer());
+        try {
+            writer.accept(buffer);
+            return buffer.writerIndex();
+        } finally {
+            buffer.release();
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package io.github.noeppi_noeppi.libx.impl.network;
 
 import net.minecraft.client.Minecraft;
+import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraftforge.fml.network.NetworkEvent;
 
@@ -14,11 +17,16 @@ public class TeUpdateHandler {
             World world = Minecraft.getInstance().world;
             if (world == null)
                 return;
-            TileEntity te = world.getTileEntity(msg.pos);
-            if (te != null && msg.id.equals(te.getType().getRegistryName())) {
-                te.handleUpdateTag(world.getBlockState(msg.pos), msg.nbt);
-            }
+            update(world, msg.pos, msg.id, msg.sequence, msg.nbt);
         });
         ctx.get().setPacketHandled(true);
     }
+
+    static void update(World world, BlockPos pos, ResourceLocation id, long sequence, CompoundNBT nbt) {
+        TileEntity te = world.getTileEntity(pos);
+        if (te != null && id.equals(te.getType().getRegistryName())) {
+            TeClientCache.put(world, pos, nbt, sequence);
+            te.handleUpdateTag(world.getBlockState(pos), nbt);
+        }
+    }
 }
@@ -17,6 +17,7 @@ public class TeUpdateSerializer implements PacketSerializer<TeUpdateSerializer.T
     public void encode(TeUpdateMessage msg, PacketBuffer buffer) {
         buffer.writeBlockPos(msg.pos);
         buffer.writeResourceLocation(msg.id);
+        buffer.writeVarLong(msg.sequence);
         buffer.writeCompoundTag(msg.nbt);
     }
 
@@ -25,6 +26,7 @@ public class TeUpdateSerializer implements PacketSerializer<TeUpdateSerializer.T
         TeUpdateMessage msg = new TeUpdateMessage();
         msg.pos = buffer.readBlockPos();
         msg.id = buffer.readResourceLocation();
+        msg.sequence = buffer.readVarLong();
         msg.nbt = buffer.readCompoundTag();
         return msg;
     }
@@ -34,14 +36,16 @@ public class TeUpdateSerializer implements PacketSerializer<TeUpdateSerializer.T
         public TeUpdateMessage() {
         }
 
-        public TeUpdateMessage(BlockPos pos, ResourceLocation id, CompoundNBT nbt) {
+        public TeUpdateMessage(BlockPos pos, ResourceLocation id, long sequence, CompoundNBT nbt) {
             this.pos = pos;
             this.id = id;
+            this.sequence = sequence;
             this.nbt = nbt;
         }
 
         public BlockPos pos;
         public ResourceLocation id;
+        public long sequence;
         public CompoundNBT nbt;
     }
 }
@@ -1,19 +1,26 @@
 package io.github.noeppi_noeppi.libx.inventory;
 
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.IRecipe;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.nbt.ListNBT;
 import net.minecraft.util.NonNullList;
+import net.minecraftforge.common.util.Constants;
 import net.minecraftforge.items.IItemHandlerModifiable;
 import net.minecraftforge.items.ItemHandlerHelper;
 import net.minecraftforge.items.ItemStackHandler;
-import org.apache.commons.lang3.ArrayUtils;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 /**
  * Copied from <a href = "https://github.com/BlakeBr0/Cucumber/blob/1.15/src/main/java/com/blakebr0/cucumber/inventory/BaseItemStackHandler.java">Cucumber</a>
@@ -31,6 +38,21 @@ public class BaseItemStackHandler extends ItemStackHandler {
     private int maxStackSize = 64;
     private int[] outputSlots = null;
     private int[] inputSlots = null;
+    // Slot roles as bitmaps. null means that no slots were set for that role.
+    private BitSet outputMask = null;
+    private BitSet inputMask = null;
+    private Consumer<int[]> onBulkContentsChanged = null;
+    // Slots changed during the current bulk operation. null if there's no bulk operation running.
+    private BitSet bulkChanges = null;
+    // Optional index of which slots hold which item. null if not enabled.
+    private Reference2ObjectMap<Item, BitSet> slotIndex = null;
+    private BitSet freeSlots = null;
+    private Item[] indexedItems = null;
+    private int filledInputs = 0;
+    private int filledOutputs = 0;
+    // Slots changed since the last call to serializeChanges.
+    private final BitSet changedSlots = new BitSet();
+    private final List<RecipeCache<?>> recipeCaches = new ArrayList<>();
 
     /**
      * Creates a new BaseItemStackHandler with the given size.
@@ -67,22 +89,34 @@ public class BaseItemStackHandler extends ItemStackHandler {
     @Nonnull
     @Override
     public ItemStack insertItem(int slot, @Nonnull ItemStack stack, boolean simulate) {
-        if (this.outputSlots != null && ArrayUtils.contains(this.outputSlots, slot))
+        if (this.outputMask != null && this.outputMask.get(slot))
             return stack;
-        return super.insertItem(slot, stack, simulate);
+        ItemStack remainder = super.insertItem(slot, stack, simulate);
+        if (!simulate) {
+            this.updateIndex(slot);
+        }
+        return remainder;
     }
 
     @Nonnull
     @Override
     public ItemStack extractItem(int slot, int amount, boolean simulate) {
-        if (this.outputSlots != null && !ArrayUtils.contains(this.outputSlots, slot))
+        if (this.outputMask != null && !this.outputMask.get(slot))
             return ItemStack.EMPTY;
-        return super.extractItem(slot, amount, simulate);
+        ItemStack extracted = super.extractItem(slot, amount, simulate);
+        if (!simulate) {
+            this.updateIndex(slot);
+        }
+        return extracted;
     }
 
     @Override
     public int getSlotLimit(int slot) {
-        return this.slotSizeMap.containsKey(slot) ? this.slotSizeMap.get(slot) : this.maxStackSize;
+        if (this.slotSizeMap.isEmpty()) {
+            return this.maxStackSize;
+        }
+        Integer limit = this.slotSizeMap.get(slot);
+        return limit == null ? this.maxStackSize : limit;
     }
 
     @Override
@@ -90,12 +124,134 @@ public class BaseItemStackHandler extends ItemStackHandler {
         return this.slotValidator == null || this.slotValidator.apply(slot, stack);
     }
 
+    @Override
+    public void setStackInSlot(int slot, @Nonnull ItemStack stack) {
+        super.setStackInSlot(slot, stack);
+        this.updateIndex(slot);
+    }
+
+    @Override
+    public void setSize(int size) {
+        super.setSize(size);
+        this.rebuildIndex();
+        this.changedSlots.set(0, this.stacks.size());
+    }
+
+    /**
+     * Gets whether slots have changed since the last call to {@link #serializeChanges()}.
+     */
+    public boolean hasChanges() {
+        return !this.changedSlots.isEmpty();
+    }
+
+    /**
+     * Serializes only the slots that changed since the last call to this method. This includes slots
+     * that became empty. The result can be applied to a copy of this inventory with
+     * {@link #deserializeChanges(CompoundNBT)}, so only changed slots need to be synced. This is meant
+     * for network sync. Changes are tracked through {@link #onContentsChanged(int)}, so stacks that are
+     * modified directly without a call to it are not included. Use {@link #serializeNBT()} to save the
+     * inventory.
+     */
+    public CompoundNBT serializeChanges() {
+        ListNBT list = new ListNBT();
+        for (int slot = this.changedSlots.nextSetBit(0); slot >= 0 && slot < this.stacks.size(); slot = this.changedSlots.nextSetBit(slot + 1)) {
+            CompoundNBT itemTag = new CompoundNBT();
+            itemTag.putInt("Slot", slot);
+            this.stacks.get(slot).write(itemTag);
+            list.add(itemTag);
+        }
+        this.changedSlots.clear();
+        CompoundNBT nbt = new CompoundNBT();
+        nbt.put("Items", list);
+        nbt.putInt("Size", this.stacks.size());
+        return nbt;
+    }
+
+    /**
+     * Applies changes serialized by {@link #serializeChanges()}. This is a bulk operation as described
+     * in {@link #setBulkListener(Consumer)}.
+     */
+    public void deserializeChanges(CompoundNBT nbt) {
+        if (nbt.contains("Size", Constants.NBT.TAG_INT) && nbt.getInt("Size") != this.stacks.size()) {
+            this.setSize(nbt.getInt("Size"));
+        }
+        ListNBT list = nbt.getList("Items", Constants.NBT.TAG_COMPOUND);
+        this.bulk(() -> {
+            for (int i = 0; i < list.size(); i++) {
+                CompoundNBT itemTag = list.getCompound(i);
+                int slot = itemTag.getInt("Slot");
+                if (slot >= 0 && slot < this.stacks.size()) {
+                    this.stacks.set(slot, ItemStack.read(itemTag));
+                    this.updateIndex(slot);
+                    this.onContentsChanged(slot);
+                }
+            }
+            return null;
+        });
+    }
+
     @Override
     public void onContentsChanged(int slot) {
+        this.updateIndex(slot);
+        this.changedSlots.set(slot);
+        if (!this.recipeCaches.isEmpty() && (this.inputMask == null || this.inputMask.get(slot))) {
+            this.invalidateRecipeCaches();
+        }
+        if (this.bulkChanges != null) {
+            this.bulkChanges.set(slot);
+            if (this.onBulkContentsChanged != null) {
+                // The bulk listener is called instead.
+                return;
+            }
+        }
         if (this.onContentsChanged != null)
             this.onContentsChanged.accept(slot);
     }
 
+    /**
+     * Called once at the end of a bulk operation with all slots that changed. {@link #onContentsChanged(int)}
+     * has already been called for each of them. The default implementation calls the bulk listener.
+     */
+    protected void onContentsChanged(int[] slots) {
+        if (this.onBulkContentsChanged != null) {
+            this.onBulkContentsChanged.accept(slots);
+        }
+    }
+
+    // Runs a bulk operation. All slots changed through onContentsChanged are collected and passed to the bulk
+    // hook at the end. Nested calls are part of the outer operation.
+    private <T> T bulk(Supplier<T> action) {
+        if (this.bulkChanges != null) {
+            return action.get();
+        }
+        BitSet changed = new BitSet();
+        this.bulkChanges = changed;
+        T result;
+        try {
+            result = action.get();
+        } finally {
+            this.bulkChanges = null;
+        }
+        if (!changed.isEmpty()) {
+            this.onContentsChanged(changed.stream().toArray());
+        }
+        return result;
+    }
+
+    private void invalidateRecipeCaches() {
+        for (RecipeCache<?> cache : this.recipeCaches) {
+            cache.invalidate();
+        }
+    }
+
+    @Override
+    protected void onLoad() {
+        super.onLoad();
+        this.rebuildIndex();
+        this.changedSlots.set(0, this.stacks.size());
+        this.invalidateRecipeCaches();
+    }
+
     public NonNullList<ItemStack> getStacks() {
         return this.stacks;
     }
@@ -132,12 +288,30 @@ public class BaseItemStackHandler extends ItemStackHandler {
         this.slotValidator = validator;
     }
 
+    /**
+     * Sets a listener that is called once with all changed slots after a bulk operation like
+     * {@link #insertItem(ItemStack, boolean)}. If this is set, the regular listener is not called for slots
+     * changed by a bulk operation. Without this, the regular listener is called for each slot.
+     * {@link #onContentsChanged(int)} is always called for each changed slot.
+     */
+    public void setBulkListener(Consumer<int[]> listener) {
+        this.onBulkContentsChanged = listener;
+    }
+
     /**
      * Sets the slot ids of the input slots.
      */
     public void setInputSlots(int... slots) {
         Arrays.sort(slots);
         this.inputSlots = slots;
+        this.inputMask = new BitSet();
+        for (int slot : slots) {
+            this.inputMask.set(slot);
+        }
+        this.rebuildIndex();
+        for (RecipeCache<?> cache : this.recipeCaches) {
+            cache.clear();
+        }
     }
 
     /**
@@ -145,12 +319,21 @@ public class BaseItemStackHandler extends ItemStackHandler {
      */
     public void setOutputSlots(int... slots) {
         this.outputSlots = slots;
+        this.outputMask = new BitSet();
+        for (int slot : slots) {
+            this.outputMask.set(slot);
+        }
+        this.rebuildIndex();
     }
 
     /**
-     * Checks whether the input slots are all empty
+     * Checks whether the input slots are all empty. With the {@link #enableSlotIndex() slot index} this
+     * runs in constant time.
      */
     public boolean isInputEmpty() {
+        if (this.slotIndex != null) {
+            return this.filledInputs <= 0;
+        }
         if (this.inputSlots != null) {
             for (int i : this.inputSlots) {
                 if (!this.getStackInSlot(i).isEmpty()) {
@@ -162,9 +345,13 @@ public class BaseItemStackHandler extends ItemStackHandler {
     }
 
     /**
-     * Checks whether the output slots are all empty
+     * Checks whether the output slots are all empty. With the {@link #enableSlotIndex() slot index} this
+     * runs in constant time.
      */
     public boolean isOutputEmpty() {
+        if (this.slotIndex != null) {
+            return this.filledOutputs <= 0;
+        }
         if (this.outputSlots != null) {
             for (int i : this.outputSlots) {
                 if (!this.getStackInSlot(i).isEmpty()) {
@@ -175,6 +362,238 @@ public class BaseItemStackHandler extends ItemStackHandler {
         return true;
     }
 
+    /**
+     * Inserts a stack into this inventory. The stack is first merged into matching stacks and then put
+     * into empty slots. Each slot is filled through {@link #insertItem(int, ItemStack, boolean)}, so all
+     * checks of that method apply. This is a bulk operation as described in {@link #setBulkListener(Consumer)}.
+     *
+     * @return The remaining stack that did not fit.
+     */
+    @Nonnull
+    public ItemStack insertItem(@Nonnull ItemStack stack, boolean simulate) {
+        if (stack.isEmpty()) {
+            return ItemStack.EMPTY;
+        }
+        return this.bulk(() -> this.insertAll(stack, simulate));
+    }
+
+    /**
+     * Extracts up to {@code amount} items that match the filter from this inventory. Each slot is extracted
+     * through {@link #extractItem(int, int, boolean)}, so all checks of that method apply. All extracted items
+     * stack with the first matching stack. The amount is limited to the maximum stack size of that item.
+     * This is a bulk operation as described in {@link #setBulkListener(Consumer)}.
+     */
+    @Nonnull
+    public ItemStack extractItem(Predicate<ItemStack> filter, int amount, boolean simulate) {
+        return this.bulk(() -> {
+            ItemStack result = ItemStack.EMPTY;
+            int left = amount;
+            for (int slot = 0; slot < this.stacks.size() && left > 0; slot++) {
+                ItemStack stack = this.getStackInSlot(slot);
+                if (stack.isEmpty()) {
+                    continue;
+                }
+                if (result.isEmpty()) {
+                    if (!filter.test(stack)) {
+                        continue;
+                    }
+                } else if (!ItemHandlerHelper.canItemStacksStack(stack, result)) {
+                    continue;
+                }
+                ItemStack extracted = this.extractItem(slot, Math.min(left, stack.getMaxStackSize()), simulate);
+                if (extracted.isEmpty()) {
+                    continue;
+                }
+                if (result.isEmpty()) {
+                    left = Math.min(left, extracted.getMaxStackSize());
+                    result = ItemHandlerHelper.copyStackWithSize(extracted, 0);
+                }
+                result.grow(extracted.getCount());
+                left -= extracted.getCount();
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Moves up to {@code amount} items that match the filter from one inventory to another. Items are taken
+     * through {@link #extractItem(int, int, boolean)} and inserted through {@link #insertItem(int, ItemStack, boolean)}.
+     * This is a bulk operation on both inventories as described in {@link #setBulkListener(Consumer)}.
+     * <p>
+     * The amount that can be inserted is simulated first. If the target then accepts less than simulated,
+     * for example because a listener changed it, the rest is put back into the source inventory without
+     * its restrictions. Items that don't fit back into the source either are passed to {@code leftover},
+     * which should return them to the player or drop them into the world.
+     *
+     * @param leftover Receives items that could neither be moved nor put back. Usually never called.
+     * @return The amount of items that were moved.
+     */
+    public static int transfer(BaseItemStackHandler from, BaseItemStackHandler to, Predicate<ItemStack> filter, int amount, Consumer<ItemStack> leftover) {
+        return from.bulk(() -> to.bulk(() -> {
+            int moved = 0;
+            for (int slot = 0; slot < from.stacks.size() && moved < amount; slot++) {
+                ItemStack stack = from.getStackInSlot(slot);
+                if (stack.isEmpty() || !filter.test(stack)) {
+                    continue;
+                }
+                ItemStack available = from.extractItem(slot, Math.min(stack.getCount(), amount - moved), true);
+                if (available.isEmpty()) {
+                    continue;
+                }
+                ItemStack remainder = to.insertAll(available, true);
+                int transferred = available.getCount() - remainder.getCount();
+                if (transferred > 0) {
+                    ItemStack extracted = from.extractItem(slot, transferred, false);
+                    ItemStack rest = to.insertAll(extracted, false);
+                    moved += extracted.getCount() - rest.getCount();
+                    if (!rest.isEmpty()) {
+                        // The simulation was wrong. Put the items back, so they don't get lost.
+                        rest = from.getUnrestricted().insertItem(slot, rest, false);
+                        if (!rest.isEmpty()) {
+                            rest = ItemHandlerHelper.insertItemStacked(from.getUnrestricted(), rest, false);
+                        }
+                        if (!rest.isEmpty()) {
+                            leftover.accept(rest);
+                        }
+                    }
+                }
+            }
+            return moved;
+        }));
+    }
+
+    // Inserts into matching stacks first and into empty slots afterwards.
+    private ItemStack insertAll(ItemStack stack, boolean simulate) {
+        ItemStack remainder = stack;
+        if (this.slotIndex != null) {
+            BitSet slots = this.slotIndex.get(stack.getItem());
+            if (slots != null) {
+                // Copy as the index may change while inserting.
+                slots = (BitSet) slots.clone();
+                for (int slot = slots.nextSetBit(0); slot >= 0 && !remainder.isEmpty(); slot = slots.nextSetBit(slot + 1)) {
+                    remainder = this.insertItem(slot, remainder, simulate);
+                }
+            }
+            BitSet free = (BitSet) this.freeSlots.clone();
+            for (int slot = free.nextSetBit(0); slot >= 0 && !remainder.isEmpty(); slot = free.nextSetBit(slot + 1)) {
+                remainder = this.insertItem(slot, remainder, simulate);
+            }
+        } else {
+            for (int slot = 0; slot < this.stacks.size() && !remainder.isEmpty(); slot++) {
+                if (!this.getStackInSlot(slot).isEmpty()) {
+                    remainder = this.insertItem(slot, remainder, simulate);
+                }
+            }
+            for (int slot = 0; slot < this.stacks.size() && !remainder.isEmpty(); slot++) {
+                if (this.getStackInSlot(slot).isEmpty()) {
+                    remainder = this.insertItem(slot, remainder, simulate);
+                }
+            }
+        }
+        return remainder;
+    }
+
+    /**
+     * Enables an index from items to the slots that contain them. This makes {@link #getSlotsWith(Item)},
+     * {@link #isInputEmpty()}, {@link #isOutputEmpty()} and bulk insertion fast for large inventories. The
+     * index is updated by {@link #setStackInSlot(int, ItemStack)}, {@link #insertItem(int, ItemStack, boolean)},
+     * {@link #extractItem(int, int, boolean)} and when the inventory is loaded, so these don't depend on
+     * {@link #onContentsChanged(int)}. Code that modifies a stack from {@link #getStackInSlot(int)} directly
+     * must call {@code onContentsChanged} for that slot afterwards and overrides of it must call the super
+     * method. Otherwise {@link #isInputEmpty()} and {@link #isOutputEmpty()} can be wrong until the slot is
+     * changed again.
+     */
+    public void enableSlotIndex() {
+        if (this.slotIndex == null) {
+            this.slotIndex = new Reference2ObjectOpenHashMap<>();
+            this.freeSlots = new BitSet();
+            this.rebuildIndex();
+        }
+    }
+
+    /**
+     * Gets the ids of all slots that contain the given item.
+     */
+    public int[] getSlotsWith(Item item) {
+        if (this.slotIndex != null) {
+            BitSet slots = this.slotIndex.get(item);
+            if (slots == null) {
+                return new int[0];
+            }
+            int[] candidates = slots.stream().toArray();
+            int[] result = Arrays.stream(candidates).filter(slot -> !this.stacks.get(slot).isEmpty()).toArray();
+            if (result.length != candidates.length) {
+                for (int slot : candidates) {
+                    this.updateIndex(slot);
+                }
+            }
+            return result;
+        } else {
+            return IntStream.range(0, this.stacks.size()).filter(slot -> this.stacks.get(slot).getItem() == item && !this.stacks.get(slot).isEmpty()).toArray();
+        }
+    }
+
+    private void rebuildIndex() {
+        if (this.slotIndex != null) {
+            this.slotIndex.clear();
+            this.freeSlots.clear();
+            this.indexedItems = new Item[this.stacks.size()];
+            this.filledInputs = 0;
+            this.filledOutputs = 0;
+            for (int slot = 0; slot < this.stacks.size(); slot++) {
+                this.freeSlots.set(slot);
+                this.updateIndex(slot);
+            }
+        }
+    }
+
+    private void updateIndex(int slot) {
+        if (this.slotIndex == null || slot < 0 || slot >= this.indexedItems.length) {
+            return;
+        }
+        ItemStack stack = this.stacks.get(slot);
+        Item item = stack.isEmpty() ? null : stack.getItem();
+        Item old = this.indexedItems[slot];
+        if (item == old) {
+            return;
+        }
+        if (old != null) {
+            BitSet slots = this.slotIndex.get(old);
+            if (slots != null) {
+                slots.clear(slot);
+                if (slots.isEmpty()) {
+                    this.slotIndex.remove(old);
+                }
+            }
+        }
+        if (item != null) {
+            this.slotIndex.computeIfAbsent(item, k -> new BitSet()).set(slot);
+        }
+        this.indexedItems[slot] = item;
+        if ((old == null) != (item == null)) {
+            int diff = item == null ? -1 : 1;
+            this.freeSlots.set(slot, item == null);
+            if (this.inputMask != null && this.inputMask.get(slot)) {
+                this.filledInputs += diff;
+            }
+            if (this.outputMask != null && this.outputMask.get(slot)) {
+                this.filledOutputs += diff;
+            }
+        }
+    }
+
+    /**
+     * Creates a new {@link RecipeCache} for the input slots of this inventory. If no input slots are set,
+     * all slots are used as inputs.
+     *
+     * @param capacity The amount of input combinations to remember.
+     */
+    public <T extends IRecipe<?>> RecipeCache<T> createRecipeCache(int capacity) {
+        RecipeCache<T> cache = new RecipeCache<>(this, capacity);
+        this.recipeCaches.add(cache);
+        return cache;
+    }
+
     /**
      * Converts this BaseItemStackHandler to a vanilla inventory.
      */
@@ -0,0 +1,210 @@
+package io.github.noeppi_noeppi.libx.inventory;
+
+import io.github.noeppi_noeppi.libx.crafting.recipe.RecipeHelper;
+import io.github.noeppi_noeppi.libx.impl.crafting.RecipeInputIndex;
+import net.minecraft.inventory.IInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.IRecipe;
+import net.minecraft.item.crafting.IRecipeType;
+import net.minecraft.item.crafting.RecipeManager;
+import net.minecraft.nbt.CompoundNBT;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Remembers which recipe matched the input slots of a {@link BaseItemStackHandler}. As long as the inputs
+ * don't change, the last result is returned without searching the recipes again. Results for previous
+ * input combinations are kept in a small LRU cache, so machines cycling between a few inputs don't need
+ * to search either. The cache is cleared when datapacks are reloaded or a different recipe manager is used.
+ * <p>
+ * Get an instance with {@link BaseItemStackHandler#createRecipeCache(int)}.
+ *
+ * @param <T> The type of the recipes.
+ */
+public class RecipeCache<T extends IRecipe<?>> {
+
+    private final BaseItemStackHandler inventory;
+    private final Map<InputKey, Optional<T>> cache;
+
+    private boolean dirty;
+    @Nullable
+    private InputKey currentKey;
+    private T current;
+    private RecipeManager recipeManager;
+    private int generation;
+
+    RecipeCache(BaseItemStackHandler inventory, int capacity) {
+        this.inventory = inventory;
+        this.cache = new LinkedHashMap<InputKey, Optional<T>>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<InputKey, Optional<T>> eldest) {
+                return this.size() > capacity;
+            }
+        };
+        this.dirty = true;
+        this.currentKey = null;
+        this.current = null;
+        this.recipeManager = null;
+        this.generation = RecipeInputIndex.getGeneration();
+    }
+
+    /**
+     * Gets the recipe for the current inputs.
+     *
+     * @param lookup Searches the recipe for the current inputs. This is only called if the result for the
+     *               current inputs is not cached. It may return null if no recipe matches.
+     */
+    @Nullable
+    public T getRecipe(RecipeManager rm, Supplier<T> lookup) {
+        if (rm != this.recipeManager || this.generation != RecipeInputIndex.getGeneration()) {
+            this.clear();
+            this.recipeManager = rm;
+            this.generation = RecipeInputIndex.getGeneration();
+        }
+        // The inputs are compared on every call as they may be changed without a notification,
+        // for example by shrinking the stack in a slot directly. A key is only built on a miss.
+        if (this.dirty || this.currentKey == null || !this.currentKey.matches(this.inventory)) {
+            InputKey key = new InputKey(this.inventory);
+            Optional<T> cached = this.cache.get(key);
+            key = key.copy();
+            //noinspection OptionalAssignedToNull
+            if (cached == null) {
+                cached = Optional.ofNullable(lookup.get());
+                this.cache.put(key, cached);
+            }
+            this.currentKey = key;
+            this.current = cached.orElse(null);
+            this.dirty = false;
+        }
+        return this.current;
+    }
+
+    /**
+     * Gets the first recipe of the given type that matches the current inputs as described in
+     * {@link RecipeHelper#matches(IRecipe, List, boolean)}.
+     */
+    @Nullable
+    public T getRecipe(RecipeManager rm, IRecipeType<? extends T> recipeType, boolean exactMatch) {
+        return this.getRecipe(rm, () -> {
+            List<ItemStack> inputs = new ArrayList<>();
+            int[] slots = this.inventory.getInputSlots();
+            if (slots == null) {
+                inputs.addAll(this.inventory.getStacks());
+            } else {
+                for (int slot : slots) {
+                    inputs.add(this.inventory.getStackInSlot(slot));
+                }
+            }
+            //noinspection unchecked
+            for (IRecipe<?> recipe : rm.getRecipes((IRecipeType<IRecipe<IInventory>>) recipeType).values()) {
+                if (RecipeHelper.matches(recipe, inputs, exactMatch)) {
+                    //noinspection unchecked
+                    return (T) recipe;
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Marks the current inputs as changed. This is called automatically when an input slot
+     * of the inventory changes. Changes without a notification are detected as well by comparing
+     * the inputs on every lookup.
+     */
+    public void invalidate() {
+        this.dirty = true;
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public void clear() {
+        this.cache.clear();
+        this.currentKey = null;
+        this.current = null;
+        this.dirty = true;
+    }
+
+    private static class InputKey {
+
+        private final Item[] items;
+        private final int[] counts;
+        private final CompoundNBT[] tags;
+        private final int hash;
+
+        private InputKey(BaseItemStackHandler inventory) {
+            int[] slots = inventory.getInputSlots();
+            int size = slots == null ? inventory.getSlots() : slots.length;
+            this.items = new Item[size];
+            this.counts = new int[size];
+            this.tags = new CompoundNBT[size];
+            int hash = 0;
+            for (int i = 0; i < size; i++) {
+                ItemStack stack = inventory.getStackInSlot(slots == null ? i : slots[i]);
+                if (!stack.isEmpty()) {
+                    this.items[i] = stack.getItem();
+                    this.counts[i] = stack.getCount();
+                    this.tags[i] = stack.getTag();
+                }
+                hash = 31 * hash + System.identityHashCode(this.items[i]);
+                hash = 31 * hash + this.counts[i];
+                hash = 31 * hash + (this.tags[i] == null ? 0 : this.tags[i].hashCode());
+            }
+            this.hash = hash;
+        }
+
+        private InputKey(Item[] items, int[] counts, CompoundNBT[] tags, int hash) {
+            this.items = items;
+            this.counts = counts;
+            this.tags = tags;
+            this.hash = hash;
+        }
+
+        // The tags in the cache must not change when the stacks in the inventory are modified.
+        private InputKey copy() {
+            CompoundNBT[] tags = new CompoundNBT[this.tags.length];
+            for (int i = 0; i < tags.length; i++) {
+                tags[i] = this.tags[i] == null ? null : this.tags[i].copy();
+            }
+            return new InputKey(this.items, this.counts, tags, this.hash);
+        }
+
+        // Compares the key with the current inputs of the inventory without building a new key.
+        private boolean matches(BaseItemStackHandler inventory) {
+            int[] slots = inventory.getInputSlots();
+            int size = slots == null ? inventory.getSlots() : slots.length;
+            if (size != this.items.length) {
+                return false;
+            }
+            for (int i = 0; i < size; i++) {
+                ItemStack stack = inventory.getStackInSlot(slots == null ? i : slots[i]);
+                if (stack.isEmpty()) {
+                    if (this.items[i] != null) {
+                        return false;
+                    }
+                } else if (stack.getItem() != this.items[i] || stack.getCount() != this.counts[i] || !Objects.equals(stack.getTag(), this.tags[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || this.getClass() != o.getClass()) return false;
+            InputKey other = (InputKey) o;
+            return this.hash == other.hash && Arrays.equals(this.items, other.items)
+                    && Arrays.equals(this.counts, other.counts) && Arrays.equals(this.tags, other.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
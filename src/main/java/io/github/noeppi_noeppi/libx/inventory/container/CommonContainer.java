@@ -1,6 +1,8 @@
 package io.github.noeppi_noeppi.libx.inventory.container;
 
 import com.mojang.datafixers.util.Function4;
+import it.unimi.dsi.fastutil.ints.IntList;
+import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.entity.player.PlayerInventory;
 import net.minecraft.inventory.container.Container;
 import net.minecraft.inventory.container.ContainerType;
@@ -21,6 +23,9 @@ import javax.annotation.Nullable;
 public abstract class CommonContainer extends Container {
     
     public final IItemHandler playerInventory;
+
+    @Nullable
+    private QuickMoveIndex quickMoveIndex = null;
     
     protected CommonContainer(@Nullable ContainerType<?> type, int id, PlayerInventory playerInventory) {
         super(type, id);
@@ -122,9 +127,62 @@ public abstract class CommonContainer extends Container {
         return index;
     }
 
+    /**
+     * Quick moves all stacks that match the stack in the given slot and are in the same inventory as that slot.
+     * This is the same as shift-clicking each of these slots but the slots are only indexed once. This is
+     * used for shift double clicks which the client sends as a separate LibX packet. The caller is
+     * responsible to send the changes to the client.
+     *
+     * @return Whether any item was moved.
+     */
+    public boolean transferAllOfType(@Nonnull PlayerEntity player, int index) {
+        Slot clicked = this.inventorySlots.get(index);
+        ItemStack reference = clicked.getStack().copy();
+        if (reference.isEmpty()) {
+            return false;
+        }
+        boolean moved = false;
+        this.quickMoveIndex = new QuickMoveIndex(this.inventorySlots);
+        try {
+            IntList candidates = this.quickMoveIndex.slotsWith(reference.getItem());
+            int[] sources = candidates == null ? new int[]{} : candidates.toIntArray();
+            for (int i : sources) {
+                Slot slot = this.inventorySlots.get(i);
+                if (!sameInventory(clicked, slot) || !slot.canTakeStack(player) || !areItemsAndTagsEqual(reference, slot.getStack())) {
+                    continue;
+                }
+                int count = slot.getStack().getCount();
+                this.transferStackInSlot(player, i);
+                if (slot.getStack().isEmpty()) {
+                    this.quickMoveIndex.emptied(i);
+                }
+                if (slot.getStack().getCount() != count || !areItemsAndTagsEqual(reference, slot.getStack())) {
+                    moved = true;
+                } else {
+                    // Nothing could be moved so the target slots are full.
+                    break;
+                }
+            }
+        } finally {
+            this.quickMoveIndex = null;
+        }
+        return moved;
+    }
+
+    private static boolean sameInventory(Slot slot1, Slot slot2) {
+        if (slot1 instanceof SlotItemHandler && slot2 instanceof SlotItemHandler) {
+            return ((SlotItemHandler) slot1).getItemHandler() == ((SlotItemHandler) slot2).getItemHandler();
+        } else {
+            return slot1.inventory == slot2.inventory;
+        }
+    }
+
     // As opposed to the super method this checks for Slot#isValid(ItemStack)
     @Override
     protected boolean mergeItemStack(@Nonnull ItemStack stack, int startIndex, int endIndex, boolean reverseDirection) {
+        if (this.quickMoveIndex != null) {
+            return this.mergeItemStackIndexed(this.quickMoveIndex, stack, startIndex, endIndex, reverseDirection);
+        }
         boolean flag = false;
         int i = startIndex;
         if (reverseDirection) {
@@ -207,4 +265,64 @@ public abstract class CommonContainer extends Container {
 
         return flag;
     }
+
+    private boolean mergeItemStackIndexed(QuickMoveIndex index, @Nonnull ItemStack stack, int startIndex, int endIndex, boolean reverseDirection) {
+        boolean flag = false;
+        if (stack.isStackable()) {
+            IntList candidates = index.slotsWith(stack.getItem());
+            if (candidates != null) {
+                int size = candidates.size();
+                for (int k = 0; k < size && !stack.isEmpty(); k++) {
+                    int i = candidates.getInt(reverseDirection ? size - 1 - k : k);
+                    if (i < startIndex || i >= endIndex) {
+                        continue;
+                    }
+
+                    Slot slot = this.inventorySlots.get(i);
+                    ItemStack itemstack = slot.getStack();
+                    if (!itemstack.isEmpty() && areItemsAndTagsEqual(stack, itemstack) && slot.isItemValid(stack)) {
+                        int j = itemstack.getCount() + stack.getCount();
+                        int maxSize = Math.min(slot.getSlotStackLimit(), stack.getMaxStackSize());
+                        if (j <= maxSize) {
+                            stack.setCount(0);
+                            itemstack.setCount(j);
+                            slot.onSlotChanged();
+                            flag = true;
+                        } else if (itemstack.getCount() < maxSize) {
+                            stack.shrink(maxSize - itemstack.getCount());
+                            itemstack.setCount(maxSize);
+                            slot.onSlotChanged();
+                            flag = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (!stack.isEmpty()) {
+            int i = index.nextEmpty(reverseDirection ? endIndex - 1 : startIndex, startIndex, endIndex, reverseDirection);
+            while (i >= 0) {
+                Slot slot1 = this.inventorySlots.get(i);
+                ItemStack itemstack1 = slot1.getStack();
+                if (itemstack1.isEmpty() && slot1.isItemValid(stack)) {
+                    if (stack.getCount() > slot1.getSlotStackLimit()) {
+                        slot1.putStack(stack.split(slot1.getSlotStackLimit()));
+                    } else {
+                        slot1.putStack(stack.split(stack.getCount()));
+                    }
+
+                    slot1.onSlotChanged();
+                    if (!slot1.getStack().isEmpty()) {
+                        index.filled(i, slot1.getStack().getItem());
+                    }
+                    flag = true;
+                    break;
+                }
+
+                i = index.nextEmpty(reverseDirection ? i - 1 : i + 1, startIndex, endIndex, reverseDirection);
+            }
+        }
+
+        return flag;
+    }
 }
@@ -0,0 +1,75 @@
+package io.github.noeppi_noeppi.libx.inventory.container;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.inventory.container.Slot;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import javax.annotation.Nullable;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A snapshot of the slots of a container that maps items to the slots that contain them and
+ * keeps track of empty slots. It is only used for the duration of one quick move operation.
+ * Entries are not removed when a slot changes, so every slot taken from here must be checked again.
+ */
+class QuickMoveIndex {
+
+    private final Reference2ObjectMap<Item, IntList> slotsByItem = new Reference2ObjectOpenHashMap<>();
+    private final BitSet empty = new BitSet();
+
+    QuickMoveIndex(List<Slot> slots) {
+        for (int i = 0; i < slots.size(); i++) {
+            ItemStack stack = slots.get(i).getStack();
+            if (stack.isEmpty()) {
+                this.empty.set(i);
+            } else {
+                this.slotsByItem.computeIfAbsent(stack.getItem(), item -> new IntArrayList()).add(i);
+            }
+        }
+    }
+
+    /**
+     * Gets the slots that contained the given item in ascending order or null if there are none.
+     */
+    @Nullable
+    IntList slotsWith(Item item) {
+        return this.slotsByItem.get(item);
+    }
+
+    /**
+     * Gets the first slot that was empty in the range from {@code start} inclusive to {@code end} exclusive
+     * after (or before when {@code reverse} is set) the given slot. {@code from} itself is included.
+     * Returns -1 if there's no such slot.
+     */
+    int nextEmpty(int from, int start, int end, boolean reverse) {
+        int slot = reverse ? this.empty.previousSetBit(Math.min(from, end - 1)) : this.empty.nextSetBit(Math.max(from, start));
+        return slot >= start && slot < end ? slot : -1;
+    }
+
+    /**
+     * Records that a slot is now empty.
+     */
+    void emptied(int slot) {
+        this.empty.set(slot);
+    }
+
+    /**
+     * Records that an empty slot now holds the given item.
+     */
+    void filled(int slot, Item item) {
+        this.empty.clear(slot);
+        IntList list = this.slotsByItem.computeIfAbsent(item, i -> new IntArrayList());
+        int pos = 0;
+        while (pos < list.size() && list.getInt(pos) < slot) {
+            pos++;
+        }
+        if (pos >= list.size() || list.getInt(pos) != slot) {
+            list.add(pos, slot);
+        }
+    }
+}
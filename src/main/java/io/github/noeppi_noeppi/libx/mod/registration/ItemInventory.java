@@ -1,5 +1,6 @@
 package io.github.noeppi_noeppi.libx.mod.registration;
 
+import io.github.noeppi_noeppi.libx.impl.ItemInventoryWrites;
 import io.github.noeppi_noeppi.libx.mod.ModX;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.CompoundNBT;
@@ -25,6 +26,7 @@ import java.util.stream.Stream;
 public class ItemInventory<T extends IItemHandlerModifiable & INBTSerializable<CompoundNBT>> extends ItemBase {
 
     private final Function<Runnable, T> inventoryFactory;
+    private final boolean coalesceWrites;
 
     /**
      * Creates a new item with inventory.
@@ -33,8 +35,23 @@ public class ItemInventory<T extends IItemHandlerModifiable & INBTSerializable<C
      *                         given to that function should be called in {@code onContentsChanged}
      */
     public ItemInventory(ModX mod, Properties properties, Function<Runnable, T> inventoryFactory) {
+        this(mod, properties, inventoryFactory, false);
+    }
+
+    /**
+     * Creates a new item with inventory.
+     *
+     * @param inventoryFactory A factory that creates new item handler for an item stack. The runnable
+     *                         given to that function should be called in {@code onContentsChanged}
+     * @param coalesceWrites   If this is true, the inventory is not written to the stack on every change but
+     *                         only once at the end of the tick, before the game saves and when the tag is
+     *                         sent to the client. A copy of the stack made before that does not contain the
+     *                         latest changes. Use {@link #flush(ItemStack)} if you need the tag to be up to date.
+     */
+    public ItemInventory(ModX mod, Properties properties, Function<Runnable, T> inventoryFactory, boolean coalesceWrites) {
         super(mod, properties);
         this.inventoryFactory = inventoryFactory;
+        this.coalesceWrites = coalesceWrites;
     }
 
     
@@ -43,11 +60,12 @@ public class ItemInventory<T extends IItemHandlerModifiable & INBTSerializable<C
     public ICapabilityProvider initCapabilities(ItemStack stack, @Nullable CompoundNBT capTag) {
         LazyOptional<IItemHandlerModifiable> inventoryCapability = LazyOptional.of(() -> {
             AtomicReference<T> handler = new AtomicReference<>(null);
-            handler.set(this.inventoryFactory.apply(() -> {
+            Runnable write = () -> {
                 CompoundNBT nbt = stack.getOrCreateTag();
                 nbt.put("Inventory", handler.get().serializeNBT());
                 stack.setTag(nbt);
-            }));
+            };
+            handler.set(this.inventoryFactory.apply(this.coalesceWrites ? () -> ItemInventoryWrites.markDirty(stack, write) : write));
             CompoundNBT nbt = stack.getTag();
             if (nbt != null && nbt.contains("Inventory", Constants.NBT.TAG_COMPOUND)) {
                 handler.get().deserializeNBT(nbt.getCompound("Inventory"));
@@ -65,6 +83,23 @@ public class ItemInventory<T extends IItemHandlerModifiable & INBTSerializable<C
         };
     }
 
+    @Nullable
+    @Override
+    public CompoundNBT getShareTag(ItemStack stack) {
+        if (this.coalesceWrites) {
+            ItemInventoryWrites.flush(stack);
+        }
+        return super.getShareTag(stack);
+    }
+
+    /**
+     * Writes pending changes of the inventory of the given stack to its tag. This is only required for
+     * items that coalesce writes and only if the tag is needed before the end of the tick.
+     */
+    public static void flush(ItemStack stack) {
+        ItemInventoryWrites.flush(stack);
+    }
+
     /**
      * Gets the inventory of an ItemStack or null if the ItemStack doesn't have tha item handler capability
      * or the item handler is not an instance of {@code IItemHandlerModifiable}.
@@ -21,6 +21,7 @@ import java.util.Set;
 public class TileEntityBase extends TileEntity {
 
     private final Set<Capability<?>> caps;
+    private long loadTime = -1;
 
     public TileEntityBase(TileEntityType<?> tileEntityTypeIn) {
         this(tileEntityTypeIn, new Capability[0]);
@@ -53,15 +54,28 @@ public class TileEntityBase extends TileEntity {
     @Override
     public void onLoad() {
         super.onLoad();
-        if (this.world != null && this.pos != null && this.world.isRemote) {
-            LibX.getNetwork().requestTE(this.world, this.pos);
+        if (this.world != null && this.pos != null) {
+            if (this.world.isRemote) {
+                LibX.getNetwork().requestTE(this.world, this.pos);
+            } else {
+                this.loadTime = this.world.getGameTime();
+            }
         }
     }
 
+    /**
+     * Gets the game time at which this tile entity was loaded on the server or -1 if it
+     * has not been loaded yet or this is called on the client.
+     */
+    public long getLoadTime() {
+        return this.loadTime;
+    }
+
     /**
      * This will update the tile entity to all clients that are tracking it when called on the server
      * using {@link io.github.noeppi_noeppi.libx.impl.network.NetworkImpl#updateTE(World, BlockPos)}
-     * at the end of this tick.
+     * at the end of this tick. As opposed to calling {@code updateTE} directly, nothing is sent if the
+     * update tag did not change since it was last sent. Use {@code updateTE} to force a resync.
      */
     public void markDispatchable() {
         if (this.world != null && this.pos != null && !this.world.isRemote) {
@@ -17,11 +17,13 @@ import net.minecraft.tileentity.TileEntity;
 import net.minecraft.tileentity.TileEntityType;
 import net.minecraft.util.LazyValue;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
 import net.minecraftforge.common.util.Constants;
 import org.apache.commons.lang3.tuple.Pair;
 
 import javax.annotation.Nonnull;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class is meant to apply a TileEntityRenderer to items. Using it is really straightforward:
@@ -36,10 +38,22 @@ public class ItemStackRenderer extends ItemStackTileEntityRenderer {
 
     private static final ItemStackRenderer INSTANCE = new ItemStackRenderer();
 
-    private static final List<TileEntityType<?>> types = Collections.synchronizedList(new LinkedList<>());
+    // Maximum amount of prepared tile entities per block
+    private static final int PREPARED_CACHE_SIZE = 16;
+    private static final CompoundNBT EMPTY_TAG = new CompoundNBT();
+
+    private static final List<TileEntityType<?>> types = Collections.synchronizedList(new ArrayList<>());
     private static final Map<TileEntityType<?>, Pair<LazyValue<TileEntity>, Boolean>> tiles = Collections.synchronizedMap(new HashMap<>());
     private static final Map<TileEntityType<?>, CompoundNBT> defaultTags = new HashMap<>();
 
+    // Block to all registered types valid for that block. Built lazily and cleared when a type is added.
+    private static final Map<Block, TileEntityType<?>[]> typesByBlock = new ConcurrentHashMap<>();
+
+    // Tile entities that already read a BlockEntityTag. Keyed by the content of the tag, so a tile is only read
+    // again when the tag changes. Only accessed from the render thread.
+    private static final Map<Block, LinkedHashMap<CompoundNBT, TileEntity>> preparedTiles = new IdentityHashMap<>();
+    private static World preparedWorld = null;
+
     private ItemStackRenderer() {
         super();
     }
@@ -54,58 +68,91 @@ public class ItemStackRenderer extends ItemStackTileEntityRenderer {
     public static <T extends TileEntity> void addRenderTile(TileEntityType<T> teType, boolean readBlockEntityTag) {
         types.add(teType);
         tiles.put(teType, Pair.of(new LazyValue<>(teType::create), readBlockEntityTag));
+        typesByBlock.clear();
     }
 
     @Override
     public void render(ItemStack stack, @Nonnull ItemCameraTransforms.TransformType type, @Nonnull MatrixStack matrixStack, @Nonnull IRenderTypeBuffer buffer, int light, int overlay) {
         Block block = Block.getBlockFromItem(stack.getItem());
         if (block != Blocks.AIR) {
-            for (TileEntityType<?> teType : types) {
-                if (teType.isValidBlock(block)) {
-                    Pair<LazyValue<TileEntity>, Boolean> pair = tiles.get(teType);
-                    BlockState state = block.getDefaultState();
-                    TileEntity tile = pair.getLeft().getValue();
-
-                    TileEntityRenderer<TileEntity> renderer = TileEntityRendererDispatcher.instance.getRenderer(tile);
-                    if (renderer != null) {
-
-                        if (pair.getRight()) {
-                            if (!defaultTags.containsKey(teType)) {
-                                setWorldPosState(tile, state);
-                                defaultTags.put(teType, tile.write(new CompoundNBT()));
-                            }
-
-                            CompoundNBT nbt = stack.getTag();
-                            setWorldPosState(tile, state);
-                            tile.read(state, defaultTags.get(teType));
-                            if (nbt != null && nbt.contains("BlockEntityTag", Constants.NBT.TAG_COMPOUND)) {
-                                CompoundNBT blockTag = nbt.getCompound("BlockEntityTag");
-                                tile.read(state, blockTag);
-                            }
+            for (TileEntityType<?> teType : typesByBlock.computeIfAbsent(block, ItemStackRenderer::findTypes)) {
+                Pair<LazyValue<TileEntity>, Boolean> pair = tiles.get(teType);
+                BlockState state = block.getDefaultState();
+                TileEntity tile = pair.getLeft().getValue();
+
+                TileEntityRenderer<TileEntity> renderer = TileEntityRendererDispatcher.instance.getRenderer(tile);
+                if (renderer != null) {
+
+                    if (pair.getRight()) {
+                        CompoundNBT nbt = stack.getTag();
+                        CompoundNBT blockTag = EMPTY_TAG;
+                        if (nbt != null && nbt.contains("BlockEntityTag", Constants.NBT.TAG_COMPOUND)) {
+                            blockTag = nbt.getCompound("BlockEntityTag");
                         }
+                        tile = getPreparedTile(teType, block, state, blockTag);
+                    }
 
-                        if (Minecraft.getInstance().world != null) {
-                            tile.setWorldAndPos(Minecraft.getInstance().world, BlockPos.ZERO);
-                        }
-                        tile.cachedBlockState = state;
+                    if (Minecraft.getInstance().world != null) {
+                        tile.setWorldAndPos(Minecraft.getInstance().world, BlockPos.ZERO);
+                    }
+                    tile.cachedBlockState = state;
 
-                        matrixStack.push();
+                    matrixStack.push();
 
-                        if (state.getRenderType() != BlockRenderType.ENTITYBLOCK_ANIMATED) {
-                            //noinspection deprecation
-                            Minecraft.getInstance().getBlockRendererDispatcher().renderBlock(block.getDefaultState(), matrixStack, buffer, light, overlay);
-                        }
-                        renderer.render(tile, Minecraft.getInstance().getRenderPartialTicks(), matrixStack, buffer, light, overlay);
+                    if (state.getRenderType() != BlockRenderType.ENTITYBLOCK_ANIMATED) {
+                        //noinspection deprecation
+                        Minecraft.getInstance().getBlockRendererDispatcher().renderBlock(block.getDefaultState(), matrixStack, buffer, light, overlay);
+                    }
+                    renderer.render(tile, Minecraft.getInstance().getRenderPartialTicks(), matrixStack, buffer, light, overlay);
 
-                        matrixStack.pop();
+                    matrixStack.pop();
 
-                        break;
-                    }
+                    break;
                 }
             }
         }
     }
 
+    private static TileEntityType<?>[] findTypes(Block block) {
+        synchronized (types) {
+            return types.stream().filter(teType -> teType.isValidBlock(block)).toArray(TileEntityType<?>[]::new);
+        }
+    }
+
+    private static TileEntity getPreparedTile(TileEntityType<?> teType, Block block, BlockState state, CompoundNBT blockTag) {
+        if (preparedWorld != Minecraft.getInstance().world) {
+            // Don't keep the old world alive through the cached tiles.
+            preparedTiles.clear();
+            preparedWorld = Minecraft.getInstance().world;
+        }
+        LinkedHashMap<CompoundNBT, TileEntity> cache = preparedTiles.computeIfAbsent(block, b -> new LinkedHashMap<CompoundNBT, TileEntity>(PREPARED_CACHE_SIZE, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CompoundNBT, TileEntity> eldest) {
+                return this.size() > PREPARED_CACHE_SIZE;
+            }
+        });
+        TileEntity tile = cache.get(blockTag);
+        if (tile == null || tile.getType() != teType) {
+            tile = teType.create();
+            if (tile == null) {
+                return tiles.get(teType).getLeft().getValue();
+            }
+            if (!defaultTags.containsKey(teType)) {
+                setWorldPosState(tile, state);
+                defaultTags.put(teType, tile.write(new CompoundNBT()));
+            }
+            setWorldPosState(tile, state);
+            tile.read(state, defaultTags.get(teType));
+            if (blockTag != EMPTY_TAG) {
+                tile.read(state, blockTag);
+            }
+            // Copy the key, so changes to the stack's tag don't corrupt the cache.
+            cache.put(blockTag.copy(), tile);
+        }
+        return tile;
+    }
+
     private static void setWorldPosState(TileEntity tile, BlockState state) {
         if (Minecraft.getInstance().world != null) {
             tile.setWorldAndPos(Minecraft.getInstance().world, BlockPos.ZERO);
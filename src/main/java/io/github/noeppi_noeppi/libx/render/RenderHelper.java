@@ -60,6 +60,12 @@ public class RenderHelper {
      * Same as {@link RenderHelper#repeatBlit(MatrixStack, int, int, int, int, int, int, TextureAtlasSprite)} but without the u and v values set directly and not with a TextureAtlasSprite.
      */
     public static void repeatBlit(MatrixStack ms, int x, int y, int texWidth, int texHeight, int displayWidth, int displayHeight, float minU, float maxU, float minV, float maxV) {
+        repeatTiles(x, y, texWidth, texHeight, displayWidth, displayHeight, minU, maxU, minV, maxV, (x1, x2, y1, y2, u1, u2, v1, v2) ->
+                AbstractGui.innerBlit(ms.getLast().getMatrix(), x1, x2, y1, y2, 0, u1, u2, v1, v2));
+    }
+
+    // Splits the area of a repeated blit into single tiles. Shared by repeatBlit and SpriteBatch.
+    static void repeatTiles(int x, int y, int texWidth, int texHeight, int displayWidth, int displayHeight, float minU, float maxU, float minV, float maxV, TileConsumer consumer) {
         int pixelsRenderedX = 0;
         while (pixelsRenderedX < displayWidth) {
             int pixelsNowX = Math.min(texWidth, displayWidth - pixelsRenderedX);
@@ -76,9 +82,9 @@ public class RenderHelper {
                     maxVThisTime = minV + ((maxV - minV) * (pixelsNowY / (float) texHeight));
                 }
 
-                AbstractGui.innerBlit(ms.getLast().getMatrix(), x + pixelsRenderedX, x + pixelsRenderedX + pixelsNowX,
+                consumer.accept(x + pixelsRenderedX, x + pixelsRenderedX + pixelsNowX,
                         y + pixelsRenderedY, y + pixelsRenderedY + pixelsNowY,
-                        0, minU, maxUThisTime, minV, maxVThisTime);
+                        minU, maxUThisTime, minV, maxVThisTime);
 
                 pixelsRenderedY += pixelsNowY;
             }
@@ -86,6 +92,12 @@ public class RenderHelper {
         }
     }
 
+    @FunctionalInterface
+    interface TileConsumer {
+
+        void accept(int x1, int x2, int y1, int y2, float minU, float maxU, float minV, float maxV);
+    }
+
     /**
      * Renders a texture colored with a given color.
      *
@@ -2,6 +2,8 @@ package io.github.noeppi_noeppi.libx.render;
 
 import com.mojang.blaze3d.matrix.MatrixStack;
 import com.mojang.blaze3d.vertex.IVertexBuilder;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 import net.minecraft.block.BlockRenderType;
 import net.minecraft.block.BlockState;
 import net.minecraft.client.Minecraft;
@@ -16,10 +18,10 @@ import net.minecraft.inventory.container.PlayerContainer;
 import net.minecraft.util.Direction;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.client.event.ModelBakeEvent;
 import net.minecraftforge.client.model.data.EmptyModelData;
 
-import java.util.List;
-import java.util.Random;
+import java.util.*;
 import java.util.function.Predicate;
 
 /**
@@ -28,7 +30,27 @@ import java.util.function.Predicate;
 public class RenderHelperBlock {
 
     private static final RenderType RENDER_TYPE_BREAK = RenderType.getCrumbling(PlayerContainer.LOCATION_BLOCKS_TEXTURE);
-    private static final Random random = new Random();
+
+    // Maximum amount of source quads with cached remapped quads. The least recently used are removed first.
+    private static final int MAX_CACHED_QUADS = 4096;
+
+    // Remapped quads by source quad and sprite. Models return the same quads for every position with the
+    // same variant, so this does not grow with the amount of rendered positions. Cleared when models are reloaded.
+    private static final Map<BakedQuad, Reference2ObjectMap<TextureAtlasSprite, BakedQuad>> quadCache = new LinkedHashMap<BakedQuad, Reference2ObjectMap<TextureAtlasSprite, BakedQuad>>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<BakedQuad, Reference2ObjectMap<TextureAtlasSprite, BakedQuad>> eldest) {
+            return this.size() > MAX_CACHED_QUADS;
+        }
+    };
+
+    // Whether a model returns the same quad instances on every call. Only quads of these models are cached. Models
+    // that build new quads on every call (for example for connected textures) would never hit the cache.
+    private static final Map<IBakedModel, Boolean> stableModels = new IdentityHashMap<>();
+    private static long cacheHits = 0;
+    private static long cacheMisses = 0;
+    private static long uncachedQuads = 0;
+    private static final ThreadLocal<Random> random = ThreadLocal.withInitial(Random::new);
 
     /**
      * Renders the break effect for a block state.
@@ -84,32 +106,132 @@ public class RenderHelperBlock {
     public static void renderBlockOverlaySprite(BlockState state, MatrixStack matrixStack, IRenderTypeBuffer buffer, int light, int overlay, TextureAtlasSprite sprite, long positionRandom, Predicate<Direction> dirs) {
         if (state.getRenderType() == BlockRenderType.MODEL) {
             IBakedModel model = Minecraft.getInstance().getBlockRendererDispatcher().getBlockModelShapes().getModel(state);
-
             IVertexBuilder vertex = Minecraft.getInstance().getRenderTypeBuffers().getCrumblingBufferSource().getBuffer(RENDER_TYPE_BREAK);
+            MatrixStack.Entry matrix = matrixStack.getLast();
+            Random random = RenderHelperBlock.random.get();
+            boolean cache = isStableModel(model, state, random, positionRandom);
 
             for (Direction direction : Direction.values()) {
                 random.setSeed(positionRandom);
-                List<BakedQuad> list = model.getQuads(state, direction, random, EmptyModelData.INSTANCE);
-                if (!list.isEmpty()) {
-                    renderBlockBreakQuad(matrixStack.getLast(), vertex, list, light, overlay, sprite, dirs);
-                }
+                renderOverlayQuads(vertex, matrix, model.getQuads(state, direction, random, EmptyModelData.INSTANCE), sprite, light, overlay, dirs, cache);
             }
 
             random.setSeed(positionRandom);
-            List<BakedQuad> list = model.getQuads(state, null, random, EmptyModelData.INSTANCE);
-            if (!list.isEmpty()) {
-                renderBlockBreakQuad(matrixStack.getLast(), vertex, list, light, overlay, sprite, dirs);
+            renderOverlayQuads(vertex, matrix, model.getQuads(state, null, random, EmptyModelData.INSTANCE), sprite, light, overlay, dirs, cache);
+        }
+    }
+
+    /**
+     * Clears the cached overlay quads. This is called automatically when models are reloaded.
+     */
+    public static void clearCache() {
+        synchronized (quadCache) {
+            quadCache.clear();
+            stableModels.clear();
+            cacheHits = 0;
+            cacheMisses = 0;
+            uncachedQuads = 0;
+        }
+    }
+
+    /**
+     * Gets how often a cached overlay quad was reused since the cache was last cleared.
+     */
+    public static long getCacheHits() {
+        synchronized (quadCache) {
+            return cacheHits;
+        }
+    }
+
+    /**
+     * Gets how often an overlay quad had to be created and was added to the cache since the cache was last cleared.
+     */
+    public static long getCacheMisses() {
+        synchronized (quadCache) {
+            return cacheMisses;
+        }
+    }
+
+    /**
+     * Gets how many overlay quads were created without the cache since the cache was last cleared, because
+     * their model builds new quads on every call.
+     */
+    public static long getUncachedQuads() {
+        synchronized (quadCache) {
+            return uncachedQuads;
+        }
+    }
+
+    public static void modelBake(ModelBakeEvent event) {
+        clearCache();
+    }
+
+    // Checks once per model whether it returns the same quad instances for two calls with the same seed.
+    private static boolean isStableModel(IBakedModel model, BlockState state, Random random, long positionRandom) {
+        synchronized (quadCache) {
+            Boolean stable = stableModels.get(model);
+            if (stable != null) {
+                return stable;
             }
         }
+        boolean stable = true;
+        for (int i = 0; i <= Direction.values().length && stable; i++) {
+            Direction side = i == Direction.values().length ? null : Direction.values()[i];
+            random.setSeed(positionRandom);
+            List<BakedQuad> first = model.getQuads(state, side, random, EmptyModelData.INSTANCE);
+            random.setSeed(positionRandom);
+            List<BakedQuad> second = model.getQuads(state, side, random, EmptyModelData.INSTANCE);
+            if (first.size() != second.size()) {
+                stable = false;
+            } else {
+                for (int j = 0; j < first.size(); j++) {
+                    if (first.get(j) != second.get(j)) {
+                        stable = false;
+                        break;
+                    }
+                }
+            }
+        }
+        synchronized (quadCache) {
+            stableModels.put(model, stable);
+        }
+        return stable;
     }
 
-    private static void renderBlockBreakQuad(MatrixStack.Entry matrix, IVertexBuilder vertex, List<BakedQuad> list, int light, int overlay, TextureAtlasSprite sprite, Predicate<Direction> dirs) {
+    private static void renderOverlayQuads(IVertexBuilder vertex, MatrixStack.Entry matrix, List<BakedQuad> list, TextureAtlasSprite sprite, int light, int overlay, Predicate<Direction> dirs, boolean cache) {
         for (BakedQuad quad : list) {
             if (dirs.test(quad.getFace())) {
-                BakedQuad modifiedQuad = new BakedQuad(modifyBlockBreakQuadData(quad.getVertexData(), quad.getSprite(), sprite), quad.getTintIndex(), quad.getFace(), sprite, quad.applyDiffuseLighting());
-                vertex.addQuad(matrix, modifiedQuad, 1, 1, 1, light, overlay);
+                vertex.addQuad(matrix, cache ? getOverlayQuad(quad, sprite) : createOverlayQuad(quad, sprite, true), 1, 1, 1, light, overlay);
+            }
+        }
+    }
+
+    private static BakedQuad getOverlayQuad(BakedQuad quad, TextureAtlasSprite sprite) {
+        synchronized (quadCache) {
+            Reference2ObjectMap<TextureAtlasSprite, BakedQuad> map = quadCache.get(quad);
+            if (map == null) {
+                map = new Reference2ObjectOpenHashMap<>();
+                quadCache.put(quad, map);
+            }
+            BakedQuad remapped = map.get(sprite);
+            if (remapped == null) {
+                cacheMisses += 1;
+                remapped = createOverlayQuad(quad, sprite, false);
+                map.put(sprite, remapped);
+            } else {
+                cacheHits += 1;
+            }
+            return remapped;
+        }
+    }
+
+    private static BakedQuad createOverlayQuad(BakedQuad quad, TextureAtlasSprite sprite, boolean count) {
+        if (count) {
+            synchronized (quadCache) {
+                uncachedQuads += 1;
             }
         }
+        return new BakedQuad(modifyBlockBreakQuadData(quad.getVertexData(), quad.getSprite(), sprite), quad.getTintIndex(), quad.getFace(), sprite, quad.applyDiffuseLighting());
     }
 
     private static int[] modifyBlockBreakQuadData(int[] data, TextureAtlasSprite oldSprite, TextureAtlasSprite newSprite) {
@@ -29,6 +29,35 @@ public class RenderHelperFluid {
         renderFluid(matrixStack, buffer, sprite, color, x, y, width, height);
     }
 
+    /**
+     * Adds a FluidStack to a {@link SpriteBatch}. This is useful when rendering many fluids at once as
+     * all fluids in the batch are drawn in one pass.
+     */
+    public static void renderFluid(SpriteBatch batch, MatrixStack matrixStack, FluidStack stack, int x, int y, int width, int height) {
+        if (!stack.isEmpty()) {
+            Fluid fluid = stack.getFluid();
+            int color = fluid.getAttributes().getColor(stack);
+            TextureAtlasSprite sprite = Minecraft.getInstance().getAtlasSpriteGetter(PlayerContainer.LOCATION_BLOCKS_TEXTURE).apply(fluid.getAttributes().getStillTexture(stack));
+            renderFluid(batch, matrixStack, sprite, color, x, y, width, height);
+        }
+    }
+
+    /**
+     * Adds a fluid with a special color to a {@link SpriteBatch}.
+     */
+    public static void renderFluid(SpriteBatch batch, MatrixStack matrixStack, int color, int x, int y, int width, int height) {
+        Fluid fluid = Fluids.WATER;
+        TextureAtlasSprite sprite = Minecraft.getInstance().getAtlasSpriteGetter(PlayerContainer.LOCATION_BLOCKS_TEXTURE).apply(fluid.getAttributes().getStillTexture());
+        renderFluid(batch, matrixStack, sprite, color, x, y, width, height);
+    }
+
+    private static void renderFluid(SpriteBatch batch, MatrixStack matrixStack, TextureAtlasSprite sprite, int color, int x, int y, int width, int height) {
+        matrixStack.push();
+        matrixStack.translate(0, 0, 100);
+        batch.repeatBlit(matrixStack, x, y, width, height, sprite, color & 0xFFFFFF);
+        matrixStack.pop();
+    }
+
     private static void renderFluid(MatrixStack matrixStack, IRenderTypeBuffer buffer, TextureAtlasSprite sprite, int color, int x, int y, int width, int height) {
         matrixStack.push();
         matrixStack.translate(0, 0, 100);
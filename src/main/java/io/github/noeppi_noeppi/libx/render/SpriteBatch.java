@@ -0,0 +1,119 @@
+package io.github.noeppi_noeppi.libx.render;
+
+import com.mojang.blaze3d.matrix.MatrixStack;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.BufferBuilder;
+import net.minecraft.client.renderer.Tessellator;
+import net.minecraft.client.renderer.WorldVertexBufferUploader;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.vector.Matrix4f;
+import net.minecraft.util.math.vector.Vector4f;
+import org.lwjgl.opengl.GL11;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects textured quads for gui rendering and draws them all at once. The quads are grouped by
+ * texture, so drawing the batch binds each texture only once and uploads all quads for it in a single
+ * draw call. This is useful for guis that render many fluids or tiled sprites, for example a lot of
+ * fluid gauges. The color of each quad is stored per vertex, so quads with different colors can still
+ * be drawn together.
+ * <p>
+ * A batch can be reused. {@link #draw()} clears all collected quads.
+ */
+public class SpriteBatch {
+
+    // x, y, z, u and v for each vertex. The colors are stored separately as ints.
+    private static final int VERTEX_SIZE = 5;
+
+    private final Map<ResourceLocation, Vertices> quads = new LinkedHashMap<>();
+    private final Vector4f vector = new Vector4f();
+
+    /**
+     * Adds a sprite that is repeated to fill the given area. This is the batched version of
+     * {@link RenderHelper#repeatBlit(MatrixStack, int, int, int, int, TextureAtlasSprite)}.
+     *
+     * @param color A color in format 0xRRGGBB
+     */
+    public void repeatBlit(MatrixStack matrixStack, int x, int y, int displayWidth, int displayHeight, TextureAtlasSprite sprite, int color) {
+        this.repeatBlit(matrixStack, sprite.getAtlasTexture().getTextureLocation(), x, y, sprite.getWidth(), sprite.getHeight(), displayWidth, displayHeight, sprite.getMinU(), sprite.getMaxU(), sprite.getMinV(), sprite.getMaxV(), color);
+    }
+
+    /**
+     * Adds a texture that is repeated to fill the given area. This is the batched version of
+     * {@link RenderHelper#repeatBlit(MatrixStack, int, int, int, int, int, int, float, float, float, float)}.
+     *
+     * @param texture The texture to use.
+     * @param color   A color in format 0xRRGGBB
+     */
+    public void repeatBlit(MatrixStack matrixStack, ResourceLocation texture, int x, int y, int texWidth, int texHeight, int displayWidth, int displayHeight, float minU, float maxU, float minV, float maxV, int color) {
+        Vertices vertices = this.quads.computeIfAbsent(texture, t -> new Vertices());
+        Matrix4f matrix = matrixStack.getLast().getMatrix();
+        RenderHelper.repeatTiles(x, y, texWidth, texHeight, displayWidth, displayHeight, minU, maxU, minV, maxV, (x1, x2, y1, y2, u1, u2, v1, v2) -> {
+            this.addVertex(vertices, matrix, x1, y2, u1, v2, color);
+            this.addVertex(vertices, matrix, x2, y2, u2, v2, color);
+            this.addVertex(vertices, matrix, x2, y1, u2, v1, color);
+            this.addVertex(vertices, matrix, x1, y1, u1, v1, color);
+        });
+    }
+
+    private void addVertex(Vertices vertices, Matrix4f matrix, float x, float y, float u, float v, int color) {
+        this.vector.set(x, y, 0, 1);
+        this.vector.transform(matrix);
+        vertices.data.add(this.vector.getX());
+        vertices.data.add(this.vector.getY());
+        vertices.data.add(this.vector.getZ());
+        vertices.data.add(u);
+        vertices.data.add(v);
+        vertices.colors.add(color);
+    }
+
+    /**
+     * Gets whether this batch does not contain any quads.
+     */
+    public boolean isEmpty() {
+        return this.quads.values().stream().allMatch(vertices -> vertices.colors.isEmpty());
+    }
+
+    /**
+     * Draws all quads of this batch and clears it afterwards.
+     */
+    public void draw() {
+        RenderHelper.resetColor();
+        for (Map.Entry<ResourceLocation, Vertices> entry : this.quads.entrySet()) {
+            Vertices vertices = entry.getValue();
+            if (vertices.colors.isEmpty()) {
+                continue;
+            }
+            Minecraft.getInstance().getTextureManager().bindTexture(entry.getKey());
+            BufferBuilder buffer = Tessellator.getInstance().getBuffer();
+            buffer.begin(GL11.GL_QUADS, DefaultVertexFormats.POSITION_COLOR_TEX);
+            float[] data = vertices.data.elements();
+            int[] colors = vertices.colors.elements();
+            int size = vertices.colors.size();
+            for (int i = 0; i < size; i++) {
+                int off = i * VERTEX_SIZE;
+                int color = colors[i];
+                buffer.pos(data[off], data[off + 1], data[off + 2])
+                        .color((color >>> 16) & 0xFF, (color >>> 8) & 0xFF, color & 0xFF, 0xFF)
+                        .tex(data[off + 3], data[off + 4])
+                        .endVertex();
+            }
+            buffer.finishDrawing();
+            WorldVertexBufferUploader.draw(buffer);
+            vertices.data.clear();
+            vertices.colors.clear();
+        }
+    }
+
+    private static class Vertices {
+
+        public final FloatArrayList data = new FloatArrayList();
+        public final IntArrayList colors = new IntArrayList();
+    }
+}